@@ -0,0 +1,34 @@
+package com.santiagoposada.libraryreactive.config;
+
+import com.santiagoposada.libraryreactive.utils.HttpExceptionBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+
+import java.time.Duration;
+
+@Configuration
+public class ConcurrencyConfig {
+
+    /**
+     * Retry policy for version conflicts: capped exponential backoff with jitter, surfacing a 409 once the budget is spent.
+     */
+    @Bean
+    public RetryBackoffSpec optimisticLockRetry(
+            @Value("${library.concurrency.max-retries:5}") long maxRetries,
+            @Value("${library.concurrency.min-backoff:10ms}") Duration minBackoff,
+            @Value("${library.concurrency.max-backoff:200ms}") Duration maxBackoff) {
+        return Retry.backoff(maxRetries, minBackoff)
+                .maxBackoff(maxBackoff)
+                .jitter(0.5)
+                .filter(OptimisticLockingFailureException.class::isInstance)
+                .onRetryExhaustedThrow((spec, signal) -> new HttpExceptionBuilder()
+                        .statusCode(HttpStatus.CONFLICT)
+                        .developerMessage("The resource is being modified concurrently, try again later")
+                        .build());
+    }
+}
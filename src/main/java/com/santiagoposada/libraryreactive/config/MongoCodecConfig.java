@@ -0,0 +1,23 @@
+package com.santiagoposada.libraryreactive.config;
+
+import com.mongodb.MongoClientSettings;
+import com.santiagoposada.libraryreactive.repository.ResourceCodec;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MongoCodecConfig {
+
+    /**
+     * Puts the Resource codec ahead of the driver defaults, so collections read with Resource as their
+     * document class decode without the mapping converter.
+     */
+    @Bean
+    public MongoClientSettingsBuilderCustomizer resourceCodecCustomizer() {
+        return settings -> settings.codecRegistry(CodecRegistries.fromRegistries(
+                CodecRegistries.fromCodecs(new ResourceCodec()),
+                MongoClientSettings.getDefaultCodecRegistry()));
+    }
+}
@@ -0,0 +1,81 @@
+package com.santiagoposada.libraryreactive.config;
+
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+import com.mongodb.reactivestreams.client.MongoClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per use case routing over the one connection string. List and search reads may go to secondaries,
+ * unit counters stay on the primary with their own write concern; everything else keeps the driver defaults
+ * through the primary template.
+ */
+@Configuration
+public class MongoRoutingConfig {
+
+    public static final String LIST_READS = "listReadsMongoTemplate";
+    public static final String COUNTERS = "countersMongoTemplate";
+
+    @Bean
+    @Primary
+    public ReactiveMongoTemplate reactiveMongoTemplate(ReactiveMongoDatabaseFactory databaseFactory,
+                                                      MongoConverter converter) {
+        return new ReactiveMongoTemplate(databaseFactory, converter);
+    }
+
+    @Bean(LIST_READS)
+    public ReactiveMongoTemplate listReadsMongoTemplate(
+            ReactiveMongoDatabaseFactory databaseFactory, MongoConverter converter,
+            @Value("${library.mongo.list-reads.read-preference:secondaryPreferred}") String readPreference,
+            @Value("${library.mongo.list-reads.max-staleness:90s}") Duration maxStaleness) {
+        ReactiveMongoTemplate template = new ReactiveMongoTemplate(databaseFactory, converter);
+        template.setReadPreference(readPreference(readPreference, maxStaleness));
+        return template;
+    }
+
+    /**
+     * The write concern is set on the database itself, so it also covers findAndModify and the raw bulk writes.
+     */
+    @Bean(COUNTERS)
+    public ReactiveMongoTemplate countersMongoTemplate(
+            MongoClient mongoClient, MongoProperties mongoProperties, MongoConverter converter,
+            @Value("${library.mongo.counters.read-preference:primary}") String readPreference,
+            @Value("${library.mongo.counters.write-concern:majority}") String writeConcern,
+            @Value("${library.mongo.counters.write-timeout:5s}") Duration writeTimeout) {
+        SimpleReactiveMongoDatabaseFactory databaseFactory =
+                new SimpleReactiveMongoDatabaseFactory(mongoClient, mongoProperties.getMongoClientDatabase());
+        databaseFactory.setWriteConcern(writeConcern(writeConcern, writeTimeout));
+        ReactiveMongoTemplate template = new ReactiveMongoTemplate(databaseFactory, converter);
+        template.setReadPreference(readPreference(readPreference, Duration.ZERO));
+        return template;
+    }
+
+    private static ReadPreference readPreference(String name, Duration maxStaleness) {
+        ReadPreference readPreference = ReadPreference.valueOf(name);
+        // The primary has no staleness to bound, the driver rejects one
+        if (maxStaleness.isZero() || readPreference.equals(ReadPreference.primary())) {
+            return readPreference;
+        }
+        return ReadPreference.valueOf(name, List.of(), maxStaleness.toSeconds(), TimeUnit.SECONDS);
+    }
+
+    private static WriteConcern writeConcern(String name, Duration writeTimeout) {
+        WriteConcern writeConcern = WriteConcern.valueOf(name);
+        if (writeConcern == null) {
+            throw new IllegalArgumentException("Unknown write concern " + name);
+        }
+        return writeTimeout.isZero() ? writeConcern : writeConcern.withWTimeout(writeTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+}
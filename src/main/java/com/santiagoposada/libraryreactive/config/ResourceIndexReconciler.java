@@ -0,0 +1,109 @@
+package com.santiagoposada.libraryreactive.config;
+
+import com.santiagoposada.libraryreactive.entity.Resource;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Brings the indexes declared on Resource to the live collection once the application is up. Missing indexes
+ * are built in the background; live indexes that differ from, or are not in, the declarations are only logged,
+ * dropping an index is left to an operator.
+ */
+@Component
+public class ResourceIndexReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(ResourceIndexReconciler.class);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    public ResourceIndexReconciler(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileIndexes() {
+        reconcile().subscribe(
+                created -> log.info("Created index {} on resources", created),
+                error -> log.warn("Could not reconcile resource indexes: {}", error.getMessage()));
+    }
+
+    public Flux<String> reconcile() {
+        ReactiveIndexOperations indexOps = mongoTemplate.indexOps(Resource.class);
+        List<IndexDefinition> declared = new ArrayList<>();
+        new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext())
+                .resolveIndexFor(Resource.class)
+                .forEach(declared::add);
+
+        return indexOps.getIndexInfo()
+                .collectMap(IndexInfo::getName, Function.identity())
+                .flatMapMany(live -> {
+                    logUndeclared(live, declared);
+                    return Flux.fromIterable(declared)
+                            .filter(definition -> isMissing(live, definition))
+                            .concatMap(definition -> indexOps.ensureIndex(inBackground(definition)));
+                });
+    }
+
+    private boolean isMissing(Map<String, IndexInfo> live, IndexDefinition definition) {
+        String name = definition.getIndexOptions().getString("name");
+        IndexInfo existing = live.get(name);
+        if (existing == null) {
+            return true;
+        }
+        if (!keys(existing).equals(definition.getIndexKeys())
+                || existing.isSparse() != definition.getIndexOptions().getBoolean("sparse", false)
+                || existing.isUnique() != definition.getIndexOptions().getBoolean("unique", false)) {
+            log.warn("Index {} on resources is {} in the collection but declared as {} {}",
+                    name, keys(existing), definition.getIndexKeys(), definition.getIndexOptions());
+        }
+        return false;
+    }
+
+    private void logUndeclared(Map<String, IndexInfo> live, List<IndexDefinition> declared) {
+        List<String> declaredNames = declared.stream()
+                .map(definition -> definition.getIndexOptions().getString("name"))
+                .collect(Collectors.toList());
+        live.keySet().stream()
+                .filter(name -> !"_id_".equals(name) && !declaredNames.contains(name))
+                .forEach(name -> log.warn("Index {} on resources is not declared on the entity", name));
+    }
+
+    private Document keys(IndexInfo index) {
+        Document keys = new Document();
+        index.getIndexFields().forEach(field -> keys.put(field.getKey(),
+                field.getDirection() == Sort.Direction.DESC ? -1 : 1));
+        return keys;
+    }
+
+    private IndexDefinition inBackground(IndexDefinition definition) {
+        Document options = new Document(definition.getIndexOptions()).append("background", true);
+        return new IndexDefinition() {
+            @Override
+            public Document getIndexKeys() {
+                return definition.getIndexKeys();
+            }
+
+            @Override
+            public Document getIndexOptions() {
+                return options;
+            }
+        };
+    }
+}
@@ -0,0 +1,71 @@
+package com.santiagoposada.libraryreactive.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.santiagoposada.libraryreactive.dto.ResourceDTO;
+import com.santiagoposada.libraryreactive.dto.ResourceProjectionDTO;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.codec.json.Jackson2CodecSupport;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.util.MimeType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON encoder for ResourceDTO and lists of it that reuses one ObjectWriter per type, instead of building a
+ * writer for every response like the generic encoder does. Only takes those types, so it can sit in front
+ * of the default encoder; JSON views and non UTF-8 charsets are handed back to the generic path.
+ */
+public class ResourceJsonEncoder extends Jackson2JsonEncoder {
+
+    private final ObjectWriter resourceWriter;
+    private final ObjectWriter projectionWriter;
+    private final ObjectWriter listWriter;
+
+    public ResourceJsonEncoder(ObjectMapper objectMapper) {
+        super(objectMapper);
+        this.resourceWriter = objectMapper.writerFor(ResourceDTO.class);
+        this.projectionWriter = objectMapper.writerFor(ResourceProjectionDTO.class);
+        // Raw, so each element is written by its own class and projections keep leaving out their nulls
+        this.listWriter = objectMapper.writerFor(List.class);
+    }
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+        return writerFor(elementType) != null && super.canEncode(elementType, mimeType);
+    }
+
+    @Override
+    public DataBuffer encodeValue(Object value, DataBufferFactory bufferFactory, ResolvableType valueType,
+                                  MimeType mimeType, Map<String, Object> hints) {
+        // The writer for ResourceDTO would drop the null handling of a projection at the root
+        ObjectWriter writer = value instanceof ResourceProjectionDTO ? projectionWriter : writerFor(valueType);
+        boolean utf8 = mimeType == null || mimeType.getCharset() == null
+                || StandardCharsets.UTF_8.equals(mimeType.getCharset());
+        if (writer == null || !utf8 || (hints != null && hints.containsKey(Jackson2CodecSupport.JSON_VIEW_HINT))) {
+            return super.encodeValue(value, bufferFactory, valueType, mimeType, hints);
+        }
+        try {
+            return bufferFactory.wrap(writer.writeValueAsBytes(value));
+        } catch (JsonProcessingException e) {
+            throw new EncodingException("JSON encoding error: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private ObjectWriter writerFor(ResolvableType type) {
+        Class<?> raw = type.toClass();
+        if (raw == ResourceDTO.class) {
+            return resourceWriter;
+        }
+        if (List.class.isAssignableFrom(raw) && type.getGeneric(0).toClass() == ResourceDTO.class) {
+            return listWriter;
+        }
+        return null;
+    }
+}
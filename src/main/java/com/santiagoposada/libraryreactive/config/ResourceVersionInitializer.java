@@ -0,0 +1,46 @@
+package com.santiagoposada.libraryreactive.config;
+
+import com.santiagoposada.libraryreactive.entity.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Documents stored before Resource was versioned have no version field, which optimistic locking
+ * can never match. Give them an initial version once the application is up, and drop the bulkTokens
+ * array bulk borrows and returns used to keep on the documents.
+ */
+@Component
+public class ResourceVersionInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(ResourceVersionInitializer.class);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    public ResourceVersionInitializer(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeVersions() {
+        mongoTemplate.updateMulti(new Query(where("version").exists(false)), new Update().set("version", 0L), Resource.class)
+                .subscribe(
+                        result -> log.info("Initialized version on {} resources", result.getModifiedCount()),
+                        error -> log.warn("Could not initialize resource versions: {}", error.getMessage()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void removeBulkTokens() {
+        mongoTemplate.updateMulti(new Query(where("bulkTokens").exists(true)), new Update().unset("bulkTokens"), Resource.class)
+                .subscribe(
+                        result -> log.info("Removed bulk tokens from {} resources", result.getModifiedCount()),
+                        error -> log.warn("Could not remove bulk tokens from resources: {}", error.getMessage()));
+    }
+}
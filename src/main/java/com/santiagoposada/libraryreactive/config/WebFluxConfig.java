@@ -1,14 +1,37 @@
 package com.santiagoposada.libraryreactive.config;
 
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.santiagoposada.libraryreactive.utils.IsoLocalDateSerializer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.web.reactive.config.CorsRegistry;
 import org.springframework.web.reactive.config.WebFluxConfigurer;
 import org.springframework.web.reactive.config.WebFluxConfigurerComposite;
 
+import java.time.LocalDate;
+
 @Configuration
 public class WebFluxConfig implements WebFluxConfigurer {
 
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper cborMapper;
+
+    /**
+     * The CBOR mapper comes from the same Boot builder as the JSON one, so both carry the same modules and features.
+     */
+    public WebFluxConfig(ObjectMapper objectMapper, Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        this.objectMapper = objectMapper;
+        this.cborMapper = objectMapperBuilder.factory(new CBORFactory()).build();
+    }
+
     @Bean
     public WebFluxConfigurer corsConfigure() {
         return new WebFluxConfigurerComposite() {
@@ -20,4 +43,33 @@ public class WebFluxConfig implements WebFluxConfigurer {
             }
         };
     }
+
+    /**
+     * Generated property accessors in place of reflection. Module beans are picked up by the Boot ObjectMapper;
+     * static so building that mapper does not need this configuration, which itself takes the mapper.
+     */
+    @Bean
+    public static Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+
+    /**
+     * Registered after JavaTimeModule, so it takes over LocalDate serialization; reading is unchanged.
+     */
+    @Bean
+    public static Module isoLocalDateModule() {
+        return new SimpleModule("IsoLocalDate").addSerializer(LocalDate.class, new IsoLocalDateSerializer());
+    }
+
+    /**
+     * Custom codecs come before the default ones, so ResourceDTO bodies take the cached writers and
+     * everything else the default Jackson encoder. CBOR is not a WebFlux default and is added for the
+     * services that negotiate it; it only handles single values, which is what the routes offering it send.
+     */
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        configurer.customCodecs().register(new ResourceJsonEncoder(objectMapper));
+        configurer.customCodecs().register(new SingleValueCborEncoder(cborMapper));
+        configurer.customCodecs().register(new Jackson2CborDecoder(cborMapper, MediaType.APPLICATION_CBOR));
+    }
 }
@@ -0,0 +1,18 @@
+package com.santiagoposada.libraryreactive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Units of one resource as they are right after a change.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityEventDTO {
+
+    private String id;
+    private Integer unitsAvailable;
+    private Integer unitsOwed;
+}
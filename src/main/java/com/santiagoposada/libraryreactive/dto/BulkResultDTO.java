@@ -0,0 +1,14 @@
+package com.santiagoposada.libraryreactive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkResultDTO {
+
+    private String id;
+    private BulkStatus status;
+}
@@ -0,0 +1,9 @@
+package com.santiagoposada.libraryreactive.dto;
+
+public enum BulkStatus {
+    BORROWED,
+    RETURNED,
+    UNAVAILABLE,
+    NOT_OWED,
+    NOT_FOUND
+}
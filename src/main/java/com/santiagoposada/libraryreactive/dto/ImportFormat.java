@@ -0,0 +1,6 @@
+package com.santiagoposada.libraryreactive.dto;
+
+public enum ImportFormat {
+    NDJSON,
+    CSV
+}
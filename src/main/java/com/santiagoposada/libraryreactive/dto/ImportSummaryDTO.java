@@ -0,0 +1,21 @@
+package com.santiagoposada.libraryreactive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Totals of an import. Only the first errors are listed, each prefixed with the line it came from.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportSummaryDTO {
+
+    private long inserted;
+    private long updated;
+    private long failed;
+    private List<String> errors;
+}
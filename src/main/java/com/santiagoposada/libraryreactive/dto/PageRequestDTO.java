@@ -0,0 +1,22 @@
+package com.santiagoposada.libraryreactive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageRequestDTO {
+
+    private String after;
+    private Integer limit;
+    private Set<String> fields;
+
+    public PageRequestDTO(String after, Integer limit) {
+        this.after = after;
+        this.limit = limit;
+    }
+}
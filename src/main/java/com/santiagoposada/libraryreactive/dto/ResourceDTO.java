@@ -14,4 +14,5 @@ public class ResourceDTO {
     private LocalDate lastBorrow;
     private Integer unitsOwed;
     private Integer unitsAvailable;
+    private Long version;
 }
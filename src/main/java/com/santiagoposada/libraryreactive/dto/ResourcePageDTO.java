@@ -0,0 +1,16 @@
+package com.santiagoposada.libraryreactive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResourcePageDTO {
+
+    private List<ResourceDTO> resources;
+    private String next;
+}
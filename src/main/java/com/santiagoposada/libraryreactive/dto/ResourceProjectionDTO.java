@@ -0,0 +1,11 @@
+package com.santiagoposada.libraryreactive.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A resource holding only the fields asked for with {@code ?fields=}; the fields left out are not written,
+ * while a full ResourceDTO still writes its null fields.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ResourceProjectionDTO extends ResourceDTO {
+}
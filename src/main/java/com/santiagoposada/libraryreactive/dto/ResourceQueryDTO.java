@@ -0,0 +1,22 @@
+package com.santiagoposada.libraryreactive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Filters of GET /query. Every filter is optional; the ones given must all match.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResourceQueryDTO {
+
+    private String type;
+    private String category;
+    private Integer minAvailable;
+    private LocalDate borrowedFrom;
+    private LocalDate borrowedTo;
+}
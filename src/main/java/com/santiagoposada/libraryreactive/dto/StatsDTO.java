@@ -0,0 +1,22 @@
+package com.santiagoposada.libraryreactive.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Inventory totals of one group of resources. Only the keys the stats were grouped by are set.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StatsDTO {
+
+    private String category;
+    private String type;
+    private Long resources;
+    private Long unitsAvailable;
+    private Long unitsOwed;
+}
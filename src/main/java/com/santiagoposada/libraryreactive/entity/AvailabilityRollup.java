@@ -0,0 +1,26 @@
+package com.santiagoposada.libraryreactive.entity;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Running totals of every resource sharing one category or one type, kept up to date as resources change
+ * so they are read with a single lookup by id.
+ */
+@Document
+@Data
+public class AvailabilityRollup {
+
+    @Id
+    private String id;
+    private String dimension;
+    private String key;
+    private Long resources;
+    private Long unitsAvailable;
+    private Long unitsOwed;
+
+    public static String rollupId(String dimension, String key) {
+        return dimension + ":" + key;
+    }
+}
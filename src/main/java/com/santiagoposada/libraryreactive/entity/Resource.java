@@ -2,11 +2,17 @@ package com.santiagoposada.libraryreactive.entity;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDate;
 
 @Document
+@CompoundIndex(name = "type_id", def = "{'type': 1, '_id': 1}")
+@CompoundIndex(name = "category_id", def = "{'category': 1, '_id': 1}")
+@CompoundIndex(name = "category_unitsAvailable", def = "{'category': 1, 'unitsAvailable': 1}")
 @Data
 public class Resource {
 
@@ -18,6 +24,10 @@ public class Resource {
     private LocalDate lastBorrow;
     private Integer unitsOwed;
     private Integer unitsAvailable;
+    @Version
+    private Long version;
+    @Indexed(name = "shards", sparse = true)
+    private Integer shards;
 
     public Resource() {
     }
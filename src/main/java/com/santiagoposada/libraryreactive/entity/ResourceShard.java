@@ -0,0 +1,37 @@
+package com.santiagoposada.libraryreactive.entity;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+
+/**
+ * One slice of the units of a resource using the split counter layout. Each shard is its own document,
+ * so borrows spread over shards do not queue on the lock of a single document.
+ */
+@Document
+@Data
+public class ResourceShard {
+
+    @Id
+    private String id;
+    private String resourceId;
+    private LocalDate lastBorrow;
+    private Integer unitsOwed;
+    private Integer unitsAvailable;
+
+    public ResourceShard() {
+    }
+
+    public ResourceShard(String resourceId, int index, Integer unitsOwed, Integer unitsAvailable) {
+        this.id = shardId(resourceId, index);
+        this.resourceId = resourceId;
+        this.unitsOwed = unitsOwed;
+        this.unitsAvailable = unitsAvailable;
+    }
+
+    public static String shardId(String resourceId, int index) {
+        return resourceId + ":" + index;
+    }
+}
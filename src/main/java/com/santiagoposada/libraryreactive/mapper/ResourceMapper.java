@@ -2,46 +2,107 @@ package com.santiagoposada.libraryreactive.mapper;
 
 
 import com.santiagoposada.libraryreactive.dto.ResourceDTO;
+import com.santiagoposada.libraryreactive.dto.ResourceProjectionDTO;
 import com.santiagoposada.libraryreactive.entity.Resource;
 import org.springframework.stereotype.Component;
-import reactor.core.CoreSubscriber;
-import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
+/**
+ * Entity/DTO mapping as shared, stateless functions: the getters hand back the same instances on every call,
+ * so mapping inside {@code .map(...)} allocates the mapped object and nothing else.
+ */
 @Component
 public class ResourceMapper {
 
+    private static final Function<ResourceDTO, Resource> TO_ENTITY = ResourceMapper::toEntity;
+    private static final Function<Resource, ResourceDTO> TO_DTO = ResourceMapper::toDTO;
+    // Field sets are validated against the few Resource fields, so this stays small
+    private static final Map<Set<String>, Function<Resource, ResourceDTO>> PROJECTIONS = new ConcurrentHashMap<>();
+
     public Function<ResourceDTO, Resource> fromResourceDTOtoEntity(){
-        return resourceDTO -> {
-            Resource resource = new Resource();
-            resource.setId(resourceDTO.getId());
-            resource.setName(resourceDTO.getName());
-            resource.setCategory(resourceDTO.getCategory());
-            resource.setType(resourceDTO.getType());
-            resource.setLastBorrow(resourceDTO.getLastBorrow());
-            resource.setUnitsAvailable(resourceDTO.getUnitsAvailable());
-            resource.setUnitsOwed(resourceDTO.getUnitsOwed());
-            return resource;
-        };
+        return TO_ENTITY;
     }
 
     public Function<Resource, ResourceDTO> fromResourceEntityToDTO(){
-        return resource -> {
-            ResourceDTO resourceDTO = new ResourceDTO();
+        return TO_DTO;
+    }
+
+    /**
+     * Maps only the given fields, leaving the others null; every field when {@code fields} is null.
+     */
+    public Function<Resource, ResourceDTO> fromResourceEntityToDTO(Set<String> fields){
+        if (fields == null) {
+            return TO_DTO;
+        }
+        Function<Resource, ResourceDTO> projection = PROJECTIONS.get(fields);
+        // Keyed by an immutable copy so a caller mutating its set cannot corrupt the cache
+        return projection != null ? projection : PROJECTIONS.computeIfAbsent(Set.copyOf(fields), Projection::new);
+    }
+
+    public static Resource toEntity(ResourceDTO resourceDTO) {
+        Resource resource = new Resource();
+        resource.setId(resourceDTO.getId());
+        resource.setName(resourceDTO.getName());
+        resource.setCategory(resourceDTO.getCategory());
+        resource.setType(resourceDTO.getType());
+        resource.setLastBorrow(resourceDTO.getLastBorrow());
+        resource.setUnitsAvailable(resourceDTO.getUnitsAvailable());
+        resource.setUnitsOwed(resourceDTO.getUnitsOwed());
+        resource.setVersion(resourceDTO.getVersion());
+        return resource;
+    }
+
+    public static ResourceDTO toDTO(Resource resource) {
+        ResourceDTO resourceDTO = new ResourceDTO();
+        resourceDTO.setId(resource.getId());
+        resourceDTO.setName(resource.getName());
+        resourceDTO.setCategory(resource.getCategory());
+        resourceDTO.setType(resource.getType());
+        resourceDTO.setLastBorrow(resource.getLastBorrow());
+        resourceDTO.setUnitsAvailable(resource.getUnitsAvailable());
+        resourceDTO.setUnitsOwed(resource.getUnitsOwed());
+        resourceDTO.setVersion(resource.getVersion());
+        return resourceDTO;
+    }
+
+    /**
+     * Resolves the field set once into flags instead of a set lookup per field and element.
+     */
+    private static final class Projection implements Function<Resource, ResourceDTO> {
+        private final boolean name;
+        private final boolean category;
+        private final boolean type;
+        private final boolean lastBorrow;
+        private final boolean unitsAvailable;
+        private final boolean unitsOwed;
+        private final boolean version;
+
+        Projection(Set<String> fields) {
+            this.name = fields.contains("name");
+            this.category = fields.contains("category");
+            this.type = fields.contains("type");
+            this.lastBorrow = fields.contains("lastBorrow");
+            this.unitsAvailable = fields.contains("unitsAvailable");
+            this.unitsOwed = fields.contains("unitsOwed");
+            this.version = fields.contains("version");
+        }
+
+        @Override
+        public ResourceDTO apply(Resource resource) {
+            ResourceDTO resourceDTO = new ResourceProjectionDTO();
             resourceDTO.setId(resource.getId());
-            resourceDTO.setName(resource.getName());
-            resourceDTO.setCategory(resource.getCategory());
-            resourceDTO.setType(resource.getType());
-            resourceDTO.setLastBorrow(resource.getLastBorrow());
-            resourceDTO.setUnitsAvailable(resource.getUnitsAvailable());
-            resourceDTO.setUnitsOwed(resource.getUnitsOwed());
+            resourceDTO.setName(name ? resource.getName() : null);
+            resourceDTO.setCategory(category ? resource.getCategory() : null);
+            resourceDTO.setType(type ? resource.getType() : null);
+            resourceDTO.setLastBorrow(lastBorrow ? resource.getLastBorrow() : null);
+            resourceDTO.setUnitsAvailable(unitsAvailable ? resource.getUnitsAvailable() : null);
+            resourceDTO.setUnitsOwed(unitsOwed ? resource.getUnitsOwed() : null);
+            resourceDTO.setVersion(version ? resource.getVersion() : null);
             return resourceDTO;
-        };
+        }
     }
-
 }
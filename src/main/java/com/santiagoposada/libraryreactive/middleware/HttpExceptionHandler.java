@@ -0,0 +1,37 @@
+package com.santiagoposada.libraryreactive.middleware;
+
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebExceptionHandler;
+
+import com.santiagoposada.libraryreactive.utils.HttpException;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Router functions are not covered by {@link GlobalExceptionHandler}; this writes any {@link HttpException}
+ * they raise with its own status code and message.
+ */
+@Component
+@Order(-2)
+public class HttpExceptionHandler implements WebExceptionHandler {
+
+    @Override
+    public Mono<Void> handle(ServerWebExchange exchange, Throwable ex) {
+        ServerHttpResponse response = exchange.getResponse();
+        if (!(ex instanceof HttpException) || response.isCommitted()) {
+            return Mono.error(ex);
+        }
+        HttpException httpException = (HttpException) ex;
+        response.setStatusCode(httpException.getStatusCode());
+        response.getHeaders().setContentType(MediaType.TEXT_PLAIN);
+        DataBuffer buffer = response.bufferFactory().wrap(httpException.getMessage().getBytes(StandardCharsets.UTF_8));
+        return response.writeWith(Mono.just(buffer));
+    }
+}
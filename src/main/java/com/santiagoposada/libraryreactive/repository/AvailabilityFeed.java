@@ -0,0 +1,261 @@
+package com.santiagoposada.libraryreactive.repository;
+
+import com.mongodb.MongoException;
+import com.santiagoposada.libraryreactive.dto.AvailabilityEventDTO;
+import com.santiagoposada.libraryreactive.entity.Resource;
+import com.santiagoposada.libraryreactive.entity.ResourceShard;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared feed of availability changes for the resources someone is watching. Borrows and returns made
+ * through this instance are published as they happen; when Mongo runs as a replica set, one change stream
+ * over the resources and their shards also brings in the changes made by other instances. The stream is
+ * reopened with backoff after a failure, resuming after the last event it delivered; only on a single node,
+ * where change streams do not exist, the feed keeps working on the in-process events alone.
+ *
+ * Every watcher shares the same sink, and an event is only emitted when the units actually moved, so the
+ * same borrow seen both in-process and through the change stream reaches the watchers once. Events older than
+ * the last one published, by document version, are dropped, so changes finishing out of order cannot leave
+ * watchers on a stale value. A watcher that falls behind skips to the latest units of each of its ids.
+ */
+@Component
+public class AvailabilityFeed {
+
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityFeed.class);
+    // The $changeStream stage is only supported on replica sets
+    private static final Set<Integer> NO_CHANGE_STREAMS = Set.of(40573);
+    // The resume token fell off the oplog, or the stream cannot be resumed from it
+    private static final Set<Integer> NOT_RESUMABLE = Set.of(280, 286);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ResourceRepository resourceRepository;
+    private final ShardedCounters shardedCounters;
+    private final WriteBehindCounters writeBehindCounters;
+    private final boolean changeStreams;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+    private final Sinks.Many<AvailabilityEventDTO> sink = Sinks.many().multicast().directBestEffort();
+    private final Map<String, Watch> watched = new ConcurrentHashMap<>();
+    private Disposable changeStream;
+    private volatile BsonValue resumeToken;
+
+    public AvailabilityFeed(ReactiveMongoTemplate mongoTemplate, ResourceRepository resourceRepository,
+                            ShardedCounters shardedCounters, WriteBehindCounters writeBehindCounters,
+                            @Value("${library.availability.change-streams:true}") boolean changeStreams,
+                            @Value("${library.availability.min-backoff:1s}") Duration minBackoff,
+                            @Value("${library.availability.max-backoff:30s}") Duration maxBackoff) {
+        this.mongoTemplate = mongoTemplate;
+        this.resourceRepository = resourceRepository;
+        this.shardedCounters = shardedCounters;
+        this.writeBehindCounters = writeBehindCounters;
+        this.changeStreams = changeStreams;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void watchChangeStream() {
+        if (!changeStreams) {
+            return;
+        }
+        String resources = mongoTemplate.getCollectionName(Resource.class);
+        String shards = mongoTemplate.getCollectionName(ResourceShard.class);
+        Document filter = new Document("$match", new Document("ns.coll", new Document("$in", List.of(resources, shards)))
+                .append("operationType", new Document("$in", List.of("insert", "update", "replace", "delete"))));
+        changeStream = Flux.defer(() -> mongoTemplate.changeStream(null, null, options(filter), Document.class))
+                .doOnNext(event -> resumeToken = event.getResumeToken())
+                .mapNotNull(event -> resourceId(event, shards))
+                .filter(watched::containsKey)
+                .concatMap(this::changed)
+                // An election or a network blip must not leave this instance deaf to the others for good
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, minBackoff)
+                        .maxBackoff(maxBackoff)
+                        .transientErrors(true)
+                        .filter(error -> !hasCode(error, NO_CHANGE_STREAMS))
+                        .doBeforeRetry(retry -> {
+                            if (hasCode(retry.failure(), NOT_RESUMABLE)) {
+                                resumeToken = null;
+                            }
+                            log.warn("Change stream for the availability feed failed, reopening: {}",
+                                    retry.failure().getMessage());
+                        }))
+                .subscribe(null, error -> log.warn(
+                        "No change stream for the availability feed, only this instance's changes are published: {}",
+                        error.getMessage()));
+    }
+
+    private ChangeStreamOptions options(Document filter) {
+        ChangeStreamOptions.ChangeStreamOptionsBuilder options = ChangeStreamOptions.builder().filter(filter);
+        BsonValue token = resumeToken;
+        return token == null ? options.build() : options.resumeAfter(token).build();
+    }
+
+    private static boolean hasCode(Throwable error, Set<Integer> codes) {
+        // The template wraps driver errors in Spring data access exceptions
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException && codes.contains(((MongoException) cause).getCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (changeStream != null) {
+            changeStream.dispose();
+        }
+        synchronized (sink) {
+            sink.tryEmitComplete();
+        }
+    }
+
+    /**
+     * Emits the current units of each id, then every change to them until the subscriber cancels; a slow
+     * subscriber gets the latest units of an id instead of every change in between.
+     */
+    public Flux<AvailabilityEventDTO> watch(Set<String> ids) {
+        return Flux.defer(() -> {
+            ids.forEach(id -> watched.compute(id, (key, watch) -> {
+                Watch current = watch == null ? new Watch() : watch;
+                current.watchers++;
+                return current;
+            }));
+            // Live first, so a change racing the snapshot is not lost
+            return Flux.merge(
+                    sink.asFlux().filter(event -> ids.contains(event.getId())),
+                    Flux.fromIterable(ids).concatMap(id -> current(id).map(this::snapshot)))
+                    // A slow subscriber stays at most one change behind the latest of each id
+                    .groupBy(AvailabilityEventDTO::getId)
+                    .flatMap(Flux::onBackpressureLatest, ids.size(), 1);
+        }).doFinally(signal -> ids.forEach(id -> watched.computeIfPresent(id,
+                (key, watch) -> --watch.watchers == 0 ? null : watch)));
+    }
+
+    /**
+     * Publishes the units of a resource this instance just changed.
+     */
+    public void changed(Resource resource) {
+        Watch watch = watched.get(resource.getId());
+        if (watch == null) {
+            return;
+        }
+        synchronized (watch) {
+            if (!watch.isNewer(resource)) {
+                return;
+            }
+            watch.publish(resource);
+            // Emitted under the watch so events of one resource leave in the order they were checked
+            synchronized (sink) {
+                sink.emitNext(event(resource), Sinks.EmitFailureHandler.FAIL_FAST);
+            }
+        }
+    }
+
+    /**
+     * Publishes a resource changed without its new units at hand, reading them only if someone watches it.
+     */
+    public Mono<Void> changed(String id) {
+        if (!watched.containsKey(id)) {
+            return Mono.empty();
+        }
+        return current(id)
+                .doOnNext(this::changed)
+                .onErrorResume(error -> {
+                    log.warn("Could not read availability of resource {}: {}", id, error.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private Mono<Resource> current(String id) {
+        return resourceRepository.findById(id)
+                .flatMap(shardedCounters::overlay)
+                .map(writeBehindCounters::overlay);
+    }
+
+    private AvailabilityEventDTO snapshot(Resource resource) {
+        Watch watch = watched.get(resource.getId());
+        if (watch != null) {
+            synchronized (watch) {
+                if (watch.unitsAvailable == null) {
+                    watch.publish(resource);
+                }
+            }
+        }
+        return event(resource);
+    }
+
+    private static AvailabilityEventDTO event(Resource resource) {
+        return new AvailabilityEventDTO(resource.getId(), resource.getUnitsAvailable(), resource.getUnitsOwed());
+    }
+
+    private static String resourceId(ChangeStreamEvent<Document> event, String shards) {
+        if (event.getRaw() == null || event.getRaw().getDocumentKey() == null) {
+            return null;
+        }
+        BsonValue key = event.getRaw().getDocumentKey().get("_id");
+        String id = key.isObjectId() ? key.asObjectId().getValue().toHexString()
+                : key.isString() ? key.asString().getValue() : null;
+        if (id != null && shards.equals(event.getCollectionName()) && id.lastIndexOf(':') > 0) {
+            // Shard ids are "<resourceId>:<index>"
+            return id.substring(0, id.lastIndexOf(':'));
+        }
+        return id;
+    }
+
+    /**
+     * Watchers are counted inside the map's compute, the last published units and version under the watch itself.
+     */
+    private static class Watch {
+        private int watchers;
+        private Long version;
+        private Integer unitsAvailable;
+        private Integer unitsOwed;
+
+        /**
+         * Whether the resource is a change after the last published one. An older version is a change that
+         * finished late; the same version only changes with split and write-behind counters, which keep the
+         * version of the document, so then only moved units count.
+         */
+        boolean isNewer(Resource resource) {
+            if (version != null && resource.getVersion() != null) {
+                int order = resource.getVersion().compareTo(version);
+                if (order != 0) {
+                    return order > 0;
+                }
+            }
+            return !Objects.equals(unitsAvailable, resource.getUnitsAvailable())
+                    || !Objects.equals(unitsOwed, resource.getUnitsOwed());
+        }
+
+        void publish(Resource resource) {
+            version = resource.getVersion();
+            unitsAvailable = resource.getUnitsAvailable();
+            unitsOwed = resource.getUnitsOwed();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.santiagoposada.libraryreactive.repository;
+
+import com.santiagoposada.libraryreactive.entity.Resource;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * DataLoader-style decorator for {@link ResourceRepository#findById}. Ids requested within a short window,
+ * or until the batch is full, are fetched with one {@code _id: {$in: [...]}} query and the results are fanned
+ * back out to each caller. When disabled every call goes straight to the repository.
+ */
+@Component
+public class BatchingResourceLoader {
+
+    private final ResourceRepository resourceRepository;
+    private final boolean enabled;
+    private FluxSink<PendingLoad> requests;
+    private Disposable batches;
+
+    public BatchingResourceLoader(ResourceRepository resourceRepository,
+                                  @Value("${library.batching.enabled:false}") boolean enabled,
+                                  @Value("${library.batching.window:1ms}") Duration window,
+                                  @Value("${library.batching.max-size:100}") int maxSize) {
+        this.resourceRepository = resourceRepository;
+        this.enabled = enabled;
+        if (enabled) {
+            this.batches = Flux.<PendingLoad>create(sink -> this.requests = sink)
+                    .bufferTimeout(maxSize, window)
+                    .flatMap(this::load)
+                    .subscribe();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (batches != null) {
+            requests.complete();
+            batches.dispose();
+        }
+    }
+
+    public Mono<Resource> findById(String id) {
+        if (!enabled) {
+            return resourceRepository.findById(id);
+        }
+        return Mono.create(sink -> requests.next(new PendingLoad(id, sink)));
+    }
+
+    private Mono<Void> load(List<PendingLoad> batch) {
+        List<String> ids = batch.stream().map(PendingLoad::getId).distinct().collect(Collectors.toList());
+        return resourceRepository.findAllById(ids)
+                .collectMap(Resource::getId)
+                .doOnNext(found -> batch.forEach(pending -> pending.getSink().success(found.get(pending.getId()))))
+                .doOnError(error -> batch.forEach(pending -> pending.getSink().error(error)))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    @RequiredArgsConstructor
+    @Getter
+    private static class PendingLoad {
+        private final String id;
+        private final MonoSink<Resource> sink;
+    }
+}
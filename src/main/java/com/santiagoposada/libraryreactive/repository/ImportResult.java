@@ -0,0 +1,17 @@
+package com.santiagoposada.libraryreactive.repository;
+
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * Outcome of writing one import batch: how many resources were inserted and updated, and the error of
+ * each record that failed, by its position in the batch.
+ */
+@Value
+public class ImportResult {
+
+    long inserted;
+    long updated;
+    Map<Integer, String> failures;
+}
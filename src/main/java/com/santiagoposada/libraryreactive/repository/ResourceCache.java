@@ -0,0 +1,103 @@
+package com.santiagoposada.libraryreactive.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.santiagoposada.libraryreactive.entity.Resource;
+import com.santiagoposada.libraryreactive.utils.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Size and TTL bounded read-through cache in front of {@link ResourceRepository#findById}. Write paths on this
+ * instance keep it current; the TTL bounds how long changes made by other instances can go unseen.
+ * Hit, miss and eviction counts are published as the "resources" cache metrics.
+ *
+ * Cached resources are shared between callers and must not be mutated.
+ */
+@Component
+public class ResourceCache {
+
+    private static final int INVALIDATION_STRIPES = 1024;
+
+    private final Cache<String, Resource> cache;
+    // Bumped by every invalidate of an id in the stripe; a load only keeps its result if its stripe did not move
+    private final AtomicLongArray invalidations = new AtomicLongArray(INVALIDATION_STRIPES);
+    private final SingleFlight<String, Resource> loads;
+    private final ResourceJsonCache jsonCache;
+
+    public ResourceCache(BatchingResourceLoader resourceLoader, ResourceJsonCache jsonCache, MeterRegistry meterRegistry,
+                         @Value("${library.cache.maximum-size:10000}") long maximumSize,
+                         @Value("${library.cache.time-to-live:10s}") Duration timeToLive) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "resources");
+        this.jsonCache = jsonCache;
+        // Concurrent misses on one id share a single read from Mongo
+        this.loads = new SingleFlight<>(id -> {
+            long generation = invalidations.get(stripe(id));
+            return resourceLoader.findById(id).doOnNext(resource -> putLoaded(id, resource, generation));
+        });
+    }
+
+    public Mono<Resource> findById(String id) {
+        Resource cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return loads.get(id);
+    }
+
+    /**
+     * Stores the resource unless a newer version of it is already cached, so a slow read cannot
+     * overwrite what a write just put.
+     */
+    public void put(Resource resource) {
+        put(resource.getId(), resource);
+    }
+
+    public void invalidate(String id) {
+        // Bumped before the entry goes, so a load finishing in between sees it and takes its result back
+        invalidations.incrementAndGet(stripe(id));
+        cache.invalidate(id);
+        // Readers arriving after the write must not join a read that started before it
+        loads.forget(id);
+        jsonCache.invalidate(id);
+    }
+
+    private void put(String id, Resource resource) {
+        cache.asMap().merge(id, resource, (current, candidate) -> isNewer(current, candidate) ? current : candidate);
+    }
+
+    /**
+     * Caches what a load read unless the id was invalidated since the load started, which would bring back
+     * the resource as it was before the write, or a deleted one.
+     */
+    private void putLoaded(String id, Resource resource, long generation) {
+        int stripe = stripe(id);
+        if (invalidations.get(stripe) != generation) {
+            return;
+        }
+        put(id, resource);
+        if (invalidations.get(stripe) != generation) {
+            cache.asMap().remove(id, resource);
+        }
+    }
+
+    private static int stripe(String id) {
+        return (id.hashCode() & Integer.MAX_VALUE) % INVALIDATION_STRIPES;
+    }
+
+    private static boolean isNewer(Resource current, Resource candidate) {
+        return current.getVersion() != null && candidate.getVersion() != null
+                && current.getVersion() > candidate.getVersion();
+    }
+}
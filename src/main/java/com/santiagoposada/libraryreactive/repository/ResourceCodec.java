@@ -0,0 +1,143 @@
+package com.santiagoposada.libraryreactive.repository;
+
+import com.santiagoposada.libraryreactive.entity.Resource;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Hand-written BSON codec for {@link Resource}, reading and writing each field straight off the wire instead
+ * of going through the reflective MappingMongoConverter and its Date/LocalDate conversion. The layout is the
+ * one the converter produces: ObjectId-shaped ids stored as ObjectIds, LocalDates as midnight of the system
+ * zone, null fields left out, and the {@code _class} hint written but ignored on read.
+ *
+ * Fields missing from the document, as with a projection, stay null.
+ */
+public class ResourceCodec implements Codec<Resource> {
+
+    private static final String TYPE_HINT = Resource.class.getName();
+
+    private final ZoneId zone;
+
+    public ResourceCodec() {
+        this(ZoneId.systemDefault());
+    }
+
+    ResourceCodec(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    @Override
+    public Resource decode(BsonReader reader, DecoderContext decoderContext) {
+        Resource resource = new Resource();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String field = reader.readName();
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+                continue;
+            }
+            switch (field) {
+                case "_id":
+                    resource.setId(reader.getCurrentBsonType() == BsonType.OBJECT_ID
+                            ? reader.readObjectId().toHexString() : reader.readString());
+                    break;
+                case "name":
+                    resource.setName(reader.readString());
+                    break;
+                case "category":
+                    resource.setCategory(reader.readString());
+                    break;
+                case "type":
+                    resource.setType(reader.readString());
+                    break;
+                case "lastBorrow":
+                    resource.setLastBorrow(Instant.ofEpochMilli(reader.readDateTime()).atZone(zone).toLocalDate());
+                    break;
+                case "unitsOwed":
+                    resource.setUnitsOwed((int) readNumber(reader));
+                    break;
+                case "unitsAvailable":
+                    resource.setUnitsAvailable((int) readNumber(reader));
+                    break;
+                case "version":
+                    resource.setVersion(readNumber(reader));
+                    break;
+                case "shards":
+                    resource.setShards((int) readNumber(reader));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return resource;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Resource resource, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        if (resource.getId() != null) {
+            if (ObjectId.isValid(resource.getId())) {
+                writer.writeObjectId("_id", new ObjectId(resource.getId()));
+            } else {
+                writer.writeString("_id", resource.getId());
+            }
+        }
+        writeString(writer, "name", resource.getName());
+        writeString(writer, "category", resource.getCategory());
+        writeString(writer, "type", resource.getType());
+        if (resource.getLastBorrow() != null) {
+            writer.writeDateTime("lastBorrow", resource.getLastBorrow().atStartOfDay(zone).toInstant().toEpochMilli());
+        }
+        writeInt(writer, "unitsOwed", resource.getUnitsOwed());
+        writeInt(writer, "unitsAvailable", resource.getUnitsAvailable());
+        if (resource.getVersion() != null) {
+            writer.writeInt64("version", resource.getVersion());
+        }
+        writeInt(writer, "shards", resource.getShards());
+        writer.writeString("_class", TYPE_HINT);
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<Resource> getEncoderClass() {
+        return Resource.class;
+    }
+
+    /**
+     * $inc and shell edits can leave any numeric type behind, so counters are read whatever their width.
+     */
+    private static long readNumber(BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case INT32:
+                return reader.readInt32();
+            case INT64:
+                return reader.readInt64();
+            case DOUBLE:
+                return (long) reader.readDouble();
+            default:
+                return reader.readDecimal128().longValue();
+        }
+    }
+
+    private static void writeString(BsonWriter writer, String name, String value) {
+        if (value != null) {
+            writer.writeString(name, value);
+        }
+    }
+
+    private static void writeInt(BsonWriter writer, String name, Integer value) {
+        if (value != null) {
+            writer.writeInt32(name, value);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.santiagoposada.libraryreactive.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.santiagoposada.libraryreactive.dto.ResourceDTO;
+import com.santiagoposada.libraryreactive.entity.Resource;
+import com.santiagoposada.libraryreactive.mapper.ResourceMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.stereotype.Component;
+
+/**
+ * The JSON of a full ResourceDTO per resource id, so a hot GET /resource/{id} skips mapping and serializing.
+ * An entry is only served for a resource equal to the one it was written from, which covers a new version and
+ * units overlaid from the counters; {@link ResourceCache#invalidate} drops the entry on writes as well.
+ * Hit, miss and eviction counts are published as the "resource-json" cache metrics.
+ *
+ * The returned arrays are shared between responses and must not be modified.
+ */
+@Component
+public class ResourceJsonCache {
+
+    private final Cache<String, Entry> cache;
+    private final ObjectWriter writer;
+
+    public ResourceJsonCache(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                             @Value("${library.json-cache.maximum-size:10000}") long maximumSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "resource-json");
+        this.writer = objectMapper.writerFor(ResourceDTO.class);
+    }
+
+    public byte[] json(Resource resource) {
+        Entry entry = cache.getIfPresent(resource.getId());
+        if (entry != null && entry.resource.equals(resource)) {
+            return entry.json;
+        }
+        byte[] json = write(ResourceMapper.toDTO(resource));
+        cache.put(resource.getId(), new Entry(resource, json));
+        return json;
+    }
+
+    public void invalidate(String id) {
+        cache.invalidate(id);
+    }
+
+    private byte[] write(ResourceDTO resourceDTO) {
+        try {
+            return writer.writeValueAsBytes(resourceDTO);
+        } catch (JsonProcessingException e) {
+            throw new EncodingException("JSON encoding error: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private static final class Entry {
+        private final Resource resource;
+        private final byte[] json;
+
+        Entry(Resource resource, byte[] json) {
+            this.resource = resource;
+            this.json = json;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.santiagoposada.libraryreactive.repository;
+
+import com.santiagoposada.libraryreactive.entity.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory search index over resource names. Names are folded to lower case without accents and split into
+ * trigrams; word prefixes of one and two characters are indexed too so the first keystrokes already match.
+ * A query is answered by intersecting the postings of its grams and checking the few candidates left.
+ *
+ * Loaded from Mongo at startup and kept current by the write use cases of this instance; a periodic reload
+ * from the primary picks up changes made by other instances. Every local change is stamped with a generation,
+ * so a reload does not undo a change this instance made after it started reading.
+ */
+@Component
+public class ResourceNameIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ResourceNameIndex.class);
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final Duration refreshInterval;
+    private final Map<String, IndexedName> names = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> postings = new ConcurrentHashMap<>();
+    // Generation of the last local change to each id, guarded by this index
+    private final Map<String, Long> changed = new HashMap<>();
+    private long generation;
+    private Disposable refresher;
+
+    public ResourceNameIndex(ReactiveMongoTemplate mongoTemplate,
+                             @Value("${library.search.refresh-interval:10m}") Duration refreshInterval) {
+        this.mongoTemplate = mongoTemplate;
+        this.refreshInterval = refreshInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        refresher = Flux.interval(Duration.ZERO, refreshInterval)
+                .concatMap(tick -> refresh().onErrorResume(error -> {
+                    log.warn("Could not load the resource name index: {}", error.getMessage());
+                    return Mono.empty();
+                }))
+                .subscribe(indexed -> log.info("Indexed the names of {} resources", indexed));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresher != null) {
+            refresher.dispose();
+        }
+    }
+
+    /**
+     * Streams the id and name of every resource into the index and drops the ones that no longer exist.
+     * Ids changed on this instance since the reload started keep their local state. Emits the number of
+     * resources indexed.
+     */
+    public Mono<Long> refresh() {
+        return Mono.defer(() -> {
+            long started;
+            Set<String> before;
+            synchronized (this) {
+                started = generation;
+                before = new HashSet<>(names.keySet());
+            }
+            Query query = new Query();
+            query.fields().include("id").include("name");
+            return mongoTemplate.find(query, Resource.class)
+                    .doOnNext(resource -> {
+                        reload(resource, started);
+                        before.remove(resource.getId());
+                    })
+                    .count()
+                    .doOnNext(indexed -> finishReload(before, started));
+        });
+    }
+
+    public synchronized void put(Resource resource) {
+        if (resource.getId() != null) {
+            changed.put(resource.getId(), ++generation);
+            index(resource);
+        }
+    }
+
+    public synchronized void remove(String id) {
+        changed.put(id, ++generation);
+        unindex(id);
+    }
+
+    private synchronized void reload(Resource resource, long started) {
+        if (!changedSince(resource.getId(), started)) {
+            index(resource);
+        }
+    }
+
+    private synchronized void finishReload(Set<String> missing, long started) {
+        missing.stream()
+                .filter(id -> !changedSince(id, started))
+                .forEach(this::unindex);
+        // Changes the reload has seen are in Mongo now, only the later ones still need protecting
+        changed.values().removeIf(stamp -> stamp <= started);
+    }
+
+    private boolean changedSince(String id, long started) {
+        Long stamp = changed.get(id);
+        return stamp != null && stamp > started;
+    }
+
+    private void index(Resource resource) {
+        if (resource.getName() == null) {
+            unindex(resource.getId());
+            return;
+        }
+        IndexedName indexed = new IndexedName(resource.getId(), resource.getName());
+        IndexedName previous = names.put(resource.getId(), indexed);
+        if (previous != null) {
+            previous.grams.stream()
+                    .filter(gram -> !indexed.grams.contains(gram))
+                    .forEach(gram -> unpost(gram, resource.getId()));
+        }
+        indexed.grams.forEach(gram -> postings.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet())
+                .add(resource.getId()));
+    }
+
+    private void unindex(String id) {
+        IndexedName previous = names.remove(id);
+        if (previous != null) {
+            previous.grams.forEach(gram -> unpost(gram, id));
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} resources, with only id and name set, whose name contains every word of
+     * the query. Whole-name prefixes rank first, then names with a word starting with the query, then
+     * shorter names.
+     */
+    public List<Resource> search(String query, int limit) {
+        String folded = fold(query);
+        List<String> words = words(folded);
+        if (words.isEmpty()) {
+            return List.of();
+        }
+        Set<String> smallest = null;
+        for (String word : words) {
+            for (String gram : queryGrams(word)) {
+                Set<String> posting = postings.get(gram);
+                if (posting == null) {
+                    return List.of();
+                }
+                if (smallest == null || posting.size() < smallest.size()) {
+                    smallest = posting;
+                }
+            }
+        }
+        String phrase = String.join(" ", words);
+        Comparator<IndexedName> ranking = Comparator.comparingInt((IndexedName indexed) -> indexed.rank(phrase))
+                .thenComparingInt(indexed -> indexed.folded.length())
+                .thenComparing(indexed -> indexed.folded);
+        // Keep only the best matches while scanning instead of sorting every candidate
+        PriorityQueue<IndexedName> best = new PriorityQueue<>(limit + 1, ranking.reversed());
+        for (String id : smallest) {
+            IndexedName indexed = names.get(id);
+            if (indexed != null && words.stream().allMatch(indexed.folded::contains)) {
+                best.add(indexed);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+        return best.stream()
+                .sorted(ranking)
+                .map(indexed -> {
+                    Resource resource = new Resource();
+                    resource.setId(indexed.id);
+                    resource.setName(indexed.name);
+                    return resource;
+                })
+                .collect(Collectors.toList());
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    private void unpost(String gram, String id) {
+        postings.computeIfPresent(gram, (key, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    static String fold(String text) {
+        String decomposed = Normalizer.normalize(text == null ? "" : text, Normalizer.Form.NFD);
+        return SEPARATORS.matcher(MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT))
+                .replaceAll(" ")
+                .trim();
+    }
+
+    private static List<String> words(String folded) {
+        return folded.isEmpty() ? List.of() : Arrays.asList(folded.split(" "));
+    }
+
+    /**
+     * Grams whose postings must all hold a name containing the word: its trigrams, or for words shorter
+     * than three characters the word itself as a word prefix.
+     */
+    private static List<String> queryGrams(String word) {
+        if (word.length() < 3) {
+            return List.of("^" + word);
+        }
+        List<String> grams = new ArrayList<>(word.length() - 2);
+        for (int i = 0; i + 3 <= word.length(); i++) {
+            grams.add(word.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    private static final class IndexedName {
+        private final String id;
+        private final String name;
+        private final String folded;
+        private final Set<String> grams = new HashSet<>();
+
+        IndexedName(String id, String name) {
+            this.id = id;
+            this.name = name;
+            this.folded = fold(name);
+            for (String word : words(folded)) {
+                grams.add("^" + word.substring(0, 1));
+                if (word.length() > 1) {
+                    grams.add("^" + word.substring(0, 2));
+                }
+            }
+            for (int i = 0; i + 3 <= folded.length(); i++) {
+                grams.add(folded.substring(i, i + 3));
+            }
+        }
+
+        int rank(String phrase) {
+            if (folded.startsWith(phrase)) {
+                return 0;
+            }
+            return folded.contains(" " + phrase) ? 1 : 2;
+        }
+    }
+}
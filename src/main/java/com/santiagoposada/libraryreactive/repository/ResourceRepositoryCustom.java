@@ -0,0 +1,77 @@
+package com.santiagoposada.libraryreactive.repository;
+
+import com.santiagoposada.libraryreactive.dto.StatsDTO;
+import com.santiagoposada.libraryreactive.entity.Resource;
+import org.springframework.data.mongodb.core.query.Criteria;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface ResourceRepositoryCustom {
+
+    /**
+     * Takes one unit of the resource in a single round trip, only if there is at least one available.
+     * Emits the updated resource, or completes empty when the resource does not exist or has no units left.
+     */
+    Mono<Resource> borrowUnit(String id, LocalDate borrowDate);
+
+    /**
+     * Gives back one unit of the resource in a single round trip, only if there is at least one owed.
+     * Emits the updated resource, or completes empty when the resource does not exist or has no units owed.
+     */
+    Mono<Resource> returnUnit(String id);
+
+    /**
+     * Deletes the resource and emits it as it was, or completes empty when it does not exist.
+     */
+    Mono<Resource> removeById(String id);
+
+    /**
+     * Borrows one unit per entry of ids, one atomic update per distinct id, so an id listed twice borrows two units.
+     * Emits, for every id that exists, how many units this call borrowed; unknown ids are left out of the map.
+     */
+    Mono<Map<String, Integer>> borrowUnits(List<String> ids, LocalDate borrowDate);
+
+    /**
+     * Returns one unit per entry of ids, one atomic update per distinct id, so an id listed twice returns two units.
+     * Emits, for every id that exists, how many units this call returned; unknown ids are left out of the map.
+     */
+    Mono<Map<String, Integer>> returnUnits(List<String> ids);
+
+    /**
+     * Writes a batch of imported resources with a single unordered bulk write. Resources without id are
+     * inserted; the others are upserted by id, overwriting their fields. Split resources are not
+     * overwritten and are reported as failures.
+     */
+    Mono<ImportResult> importResources(List<Resource> resources);
+
+    /**
+     * Applies accumulated counter deltas with a single unordered bulk write and emits how many documents changed.
+     * When some writes fail it errors with a MongoBulkWriteException whose write error indexes are positions in
+     * {@code deltas}; every other delta was applied.
+     */
+    Mono<Long> incrementUnits(List<UnitsDelta> deltas);
+
+    /**
+     * Reads up to {@code limit} resources matching the criteria in _id order, starting right after {@code afterId}
+     * (from the beginning when it is null). Seeks on the _id index instead of skipping, so deep pages cost the same.
+     * When {@code fields} is not null only those fields and the counters are read; the others are left null.
+     */
+    Flux<Resource> findPage(Criteria criteria, String afterId, int limit, Collection<String> fields);
+
+    /**
+     * Streams every resource matching the criteria in _id order after {@code afterId}, fetching the cursor
+     * {@code batchSize} documents at a time as the subscriber asks for more.
+     */
+    Flux<Resource> streamAll(Criteria criteria, String afterId, Collection<String> fields, int batchSize);
+
+    /**
+     * Counts resources and sums their units per distinct value of the given fields, in one aggregation.
+     * Split resources are counted with the units of their shards.
+     */
+    Flux<StatsDTO> aggregateStats(List<String> groupBy);
+}
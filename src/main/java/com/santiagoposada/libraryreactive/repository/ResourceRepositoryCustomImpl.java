@@ -0,0 +1,330 @@
+package com.santiagoposada.libraryreactive.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import com.santiagoposada.libraryreactive.config.MongoRoutingConfig;
+import com.santiagoposada.libraryreactive.dto.StatsDTO;
+import com.santiagoposada.libraryreactive.entity.Resource;
+import com.santiagoposada.libraryreactive.entity.ResourceShard;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.convert.UpdateMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+public class ResourceRepositoryCustomImpl implements ResourceRepositoryCustom {
+
+    // Bounds the updates a bulk call keeps in flight on the counters connection pool
+    private static final int MAX_PARALLEL_UPDATES = 32;
+    // Read whatever fields were asked for, as the counter overlays and filters applied after the read need them
+    private static final List<String> COUNTER_FIELDS = List.of("shards", "unitsAvailable", "unitsOwed", "lastBorrow");
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ReactiveMongoTemplate listReads;
+    private final ReactiveMongoTemplate counters;
+    private final QueryMapper queryMapper;
+    private final UpdateMapper updateMapper;
+
+    public ResourceRepositoryCustomImpl(ReactiveMongoTemplate mongoTemplate,
+                                        @Qualifier(MongoRoutingConfig.LIST_READS) ReactiveMongoTemplate listReads,
+                                        @Qualifier(MongoRoutingConfig.COUNTERS) ReactiveMongoTemplate counters) {
+        this.mongoTemplate = mongoTemplate;
+        this.listReads = listReads;
+        this.counters = counters;
+        this.queryMapper = new QueryMapper(mongoTemplate.getConverter());
+        this.updateMapper = new UpdateMapper(mongoTemplate.getConverter());
+    }
+
+    @Override
+    public Mono<Resource> borrowUnit(String id, LocalDate borrowDate) {
+        return counters.findAndModify(borrowQuery(id), borrowUpdate(borrowDate),
+                FindAndModifyOptions.options().returnNew(true), Resource.class);
+    }
+
+    @Override
+    public Mono<Resource> returnUnit(String id) {
+        return counters.findAndModify(returnQuery(id), returnUpdate(),
+                FindAndModifyOptions.options().returnNew(true), Resource.class);
+    }
+
+    @Override
+    public Mono<Resource> removeById(String id) {
+        return mongoTemplate.findAndRemove(new Query(where("id").is(id)), Resource.class);
+    }
+
+    @Override
+    public Mono<Map<String, Integer>> borrowUnits(List<String> ids, LocalDate borrowDate) {
+        Date lastBorrow = Date.from(borrowDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
+        return takeEach(ids, "unitsAvailable", "unitsOwed", taken -> new Document("$cond",
+                List.of(new Document("$gt", List.of(taken, 0)), lastBorrow, "$lastBorrow")));
+    }
+
+    @Override
+    public Mono<Map<String, Integer>> returnUnits(List<String> ids) {
+        return takeEach(ids, "unitsOwed", "unitsAvailable", taken -> "$lastBorrow");
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Mono<ImportResult> importResources(List<Resource> resources) {
+        MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(Resource.class);
+        List<WriteModel<Document>> writes = new ArrayList<>(resources.size());
+        for (Resource resource : resources) {
+            if (resource.getId() == null) {
+                Document document = new Document();
+                mongoTemplate.getConverter().write(resource, document);
+                document.put("version", 0L);
+                writes.add(new InsertOneModel<>(document));
+            } else {
+                Update update = new Update()
+                        .set("name", resource.getName())
+                        .set("category", resource.getCategory())
+                        .set("type", resource.getType())
+                        .set("lastBorrow", resource.getLastBorrow())
+                        .set("unitsOwed", resource.getUnitsOwed())
+                        .set("unitsAvailable", resource.getUnitsAvailable())
+                        .inc("version", 1);
+                // A split resource matches nothing, so the upsert collides with its id instead of orphaning its shards
+                Query plain = new Query(where("id").is(resource.getId()).and("shards").exists(false));
+                writes.add(new UpdateOneModel<>(queryMapper.getMappedObject(plain.getQueryObject(), entity),
+                        updateMapper.getMappedObject(update.getUpdateObject(), entity),
+                        new UpdateOptions().upsert(true)));
+            }
+        }
+
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Resource.class))
+                .flatMap(collection -> Mono.from(collection.bulkWrite(writes, new BulkWriteOptions().ordered(false))))
+                .map(result -> importResult(result, Map.of()))
+                .onErrorResume(MongoBulkWriteException.class, error -> Mono.just(importResult(error.getWriteResult(),
+                        error.getWriteErrors().stream().collect(Collectors.toMap(
+                                BulkWriteError::getIndex, BulkWriteError::getMessage,
+                                (first, second) -> first)))))
+                .doOnNext(result -> {
+                    // The driver generated the ids of the inserted documents, hand them back to the callers
+                    for (int i = 0; i < writes.size(); i++) {
+                        if (writes.get(i) instanceof InsertOneModel) {
+                            Object id = ((InsertOneModel<Document>) writes.get(i)).getDocument().get("_id");
+                            resources.get(i).setId(id == null ? null : id.toString());
+                        }
+                    }
+                });
+    }
+
+    @Override
+    public Mono<Long> incrementUnits(List<UnitsDelta> deltas) {
+        MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(Resource.class);
+        List<UpdateOneModel<Document>> writes = deltas.stream()
+                .map(delta -> {
+                    Update update = new Update()
+                            .inc("unitsAvailable", delta.getUnitsAvailable())
+                            .inc("unitsOwed", delta.getUnitsOwed())
+                            .inc("version", 1);
+                    if (delta.getLastBorrow() != null) {
+                        update.max("lastBorrow", delta.getLastBorrow());
+                    }
+                    return new UpdateOneModel<Document>(
+                            queryMapper.getMappedObject(new Query(where("id").is(delta.getId())).getQueryObject(), entity),
+                            updateMapper.getMappedObject(update.getUpdateObject(), entity));
+                })
+                .collect(Collectors.toList());
+
+        return counters.getCollection(counters.getCollectionName(Resource.class))
+                .flatMap(collection -> Mono.from(collection.bulkWrite(writes, new BulkWriteOptions().ordered(false))))
+                .map(result -> (long) result.getModifiedCount());
+    }
+
+    @Override
+    public Flux<Resource> findPage(Criteria criteria, String afterId, int limit, Collection<String> fields) {
+        // The whole page in the first batch, no getMore round trips
+        return findDecoded(pageQuery(criteria, afterId, fields), limit, limit);
+    }
+
+    @Override
+    public Flux<Resource> streamAll(Criteria criteria, String afterId, Collection<String> fields, int batchSize) {
+        return findDecoded(pageQuery(criteria, afterId, fields), 0, batchSize);
+    }
+
+    /**
+     * Runs the query on the list reads template but decodes with {@link ResourceCodec} from the client
+     * registry instead of the mapping converter; only the query itself still goes through the mappers.
+     */
+    private Flux<Resource> findDecoded(Query query, int limit, int batchSize) {
+        MongoPersistentEntity<?> entity = listReads.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(Resource.class);
+        Document filter = queryMapper.getMappedObject(query.getQueryObject(), entity);
+        Document projection = queryMapper.getMappedFields(query.getFieldsObject(), entity);
+        Document sort = queryMapper.getMappedSort(query.getSortObject(), entity);
+        return listReads.execute(Resource.class, collection -> collection.withDocumentClass(Resource.class)
+                .find(filter)
+                .projection(projection.isEmpty() ? null : projection)
+                .sort(sort)
+                .limit(limit)
+                .batchSize(batchSize));
+    }
+
+    Query pageQuery(Criteria criteria, String afterId, Collection<String> fields) {
+        Query query = new Query(afterId == null ? criteria : new Criteria().andOperator(criteria, after(afterId)));
+        if (fields != null) {
+            fields.forEach(query.fields()::include);
+            COUNTER_FIELDS.forEach(query.fields()::include);
+        }
+        return query.with(Sort.by("id"));
+    }
+
+    /**
+     * Resumes after the given _id with a comparison of its own BSON type, which follows from its shape as it does
+     * when the converter writes it. Mongo compares _ids within a type only and sorts every string before every
+     * ObjectId, so after a string id the remaining strings and all the ObjectIds are still to come.
+     */
+    private static Criteria after(String afterId) {
+        if (ObjectId.isValid(afterId)) {
+            return where("id").gt(new ObjectId(afterId));
+        }
+        return new Criteria().orOperator(where("id").gt(afterId), where("id").type(JsonSchemaObject.Type.OBJECT_ID));
+    }
+
+    @Override
+    public Flux<StatsDTO> aggregateStats(List<String> groupBy) {
+        Document key = new Document();
+        groupBy.forEach(field -> key.append(field, "$" + field));
+        // Plain resources are summed from their own counters; split ones, which keep zero there, from
+        // their shards. Both halves run in one $facet and are merged per group.
+        Document units = new Document("$sum", "$shardDocs.unitsAvailable");
+        Document owed = new Document("$sum", "$shardDocs.unitsOwed");
+        List<Document> plain = List.of(
+                new Document("$match", new Document("shards", new Document("$exists", false))),
+                new Document("$group", totals(key, 1, "$unitsAvailable", "$unitsOwed")));
+        List<Document> split = List.of(
+                new Document("$match", new Document("shards", new Document("$exists", true))),
+                new Document("$lookup", new Document("from", mongoTemplate.getCollectionName(ResourceShard.class))
+                        .append("let", new Document("id", new Document("$toString", "$_id")))
+                        .append("pipeline", List.of(new Document("$match", new Document("$expr",
+                                new Document("$eq", List.of("$resourceId", "$$id"))))))
+                        .append("as", "shardDocs")),
+                new Document("$group", totals(key, 1, units, owed)));
+        List<Document> pipeline = List.of(
+                new Document("$facet", new Document("plain", plain).append("split", split)),
+                new Document("$project", new Document("groups", new Document("$concatArrays", List.of("$plain", "$split")))),
+                new Document("$unwind", "$groups"),
+                new Document("$replaceRoot", new Document("newRoot", "$groups")),
+                new Document("$group", totals("$_id", "$resources", "$unitsAvailable", "$unitsOwed")),
+                new Document("$sort", new Document("_id", 1)));
+
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Resource.class))
+                .flatMapMany(collection -> Flux.from(collection.aggregate(pipeline)))
+                .map(group -> {
+                    Document id = group.get("_id", Document.class);
+                    return new StatsDTO(id.getString("category"), id.getString("type"),
+                            ((Number) group.get("resources")).longValue(),
+                            ((Number) group.get("unitsAvailable")).longValue(),
+                            ((Number) group.get("unitsOwed")).longValue());
+                });
+    }
+
+    private Document totals(Object key, Object resources, Object unitsAvailable, Object unitsOwed) {
+        return new Document("_id", key)
+                .append("resources", new Document("$sum", resources))
+                .append("unitsAvailable", new Document("$sum", unitsAvailable))
+                .append("unitsOwed", new Document("$sum", unitsOwed));
+    }
+
+    private static ImportResult importResult(BulkWriteResult result, Map<Integer, String> failures) {
+        return new ImportResult(result.getInsertedCount() + result.getUpserts().size(), result.getMatchedCount(), failures);
+    }
+
+    private Query borrowQuery(String id) {
+        return new Query(where("id").is(id).and("unitsAvailable").gt(0));
+    }
+
+    private Update borrowUpdate(LocalDate borrowDate) {
+        return new Update()
+                .inc("unitsAvailable", -1)
+                .inc("unitsOwed", 1)
+                .set("lastBorrow", borrowDate)
+                .inc("version", 1);
+    }
+
+    private Query returnQuery(String id) {
+        return new Query(where("id").is(id).and("unitsOwed").gt(0));
+    }
+
+    private Update returnUpdate() {
+        return new Update()
+                .inc("unitsAvailable", 1)
+                .inc("unitsOwed", -1)
+                .inc("version", 1);
+    }
+
+    /**
+     * Moves units from one counter to the other with one atomic findAndModify per distinct id, in parallel.
+     * An id listed k times takes up to k units, as many as the counter holds, in a single pipeline update;
+     * the document as it was before tells how many it took, and that it exists at all. lastBorrow and version
+     * only change when some unit moved.
+     */
+    private Mono<Map<String, Integer>> takeEach(List<String> ids, String from, String to,
+                                                Function<Document, Object> lastBorrow) {
+        MongoPersistentEntity<?> entity = counters.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(Resource.class);
+        Map<String, Integer> requested = ids.stream()
+                .collect(Collectors.toMap(Function.identity(), id -> 1, Integer::sum, LinkedHashMap::new));
+        FindOneAndUpdateOptions before = new FindOneAndUpdateOptions()
+                .projection(new Document(from, 1))
+                .returnDocument(ReturnDocument.BEFORE);
+
+        return counters.getCollection(counters.getCollectionName(Resource.class))
+                .flatMapMany(collection -> Flux.fromIterable(requested.entrySet())
+                        .flatMap(request -> {
+                            Document available = new Document("$max", List.of(new Document("$ifNull", List.of("$" + from, 0)), 0));
+                            Document taken = new Document("$min", List.of(request.getValue(), available));
+                            Document moved = new Document("$cond", List.of(new Document("$gt", List.of(taken, 0)), 1, 0));
+                            Document set = new Document(from, new Document("$subtract",
+                                            List.of(new Document("$ifNull", List.of("$" + from, 0)), taken)))
+                                    .append(to, new Document("$add", List.of(new Document("$ifNull", List.of("$" + to, 0)), taken)))
+                                    .append("lastBorrow", lastBorrow.apply(taken))
+                                    .append("version", new Document("$add", List.of(new Document("$ifNull", List.of("$version", 0L)), moved)));
+                            Document filter = queryMapper.getMappedObject(
+                                    new Query(where("id").is(request.getKey())).getQueryObject(), entity);
+                            return Mono.from(collection.findOneAndUpdate(filter, List.of(new Document("$set", set)), before))
+                                    .map(previous -> Map.entry(request.getKey(), Math.min(request.getValue(),
+                                            Math.max(units(previous.get(from)), 0))));
+                        }, MAX_PARALLEL_UPDATES))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    private static int units(Object counter) {
+        return counter == null ? 0 : ((Number) counter).intValue();
+    }
+}
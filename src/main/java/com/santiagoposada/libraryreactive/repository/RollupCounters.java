@@ -0,0 +1,311 @@
+package com.santiagoposada.libraryreactive.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.santiagoposada.libraryreactive.entity.AvailabilityRollup;
+import com.santiagoposada.libraryreactive.entity.Resource;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Maintains one {@link AvailabilityRollup} per category and per type. Every write to a resource records its
+ * change here and the changes are flushed as one bulk of upserted $inc every flush interval: a rollup is
+ * shared by every resource of its category, so writing it on each borrow would serialize them all on it.
+ *
+ * Changes known only by resource id, such as bulk borrows, are resolved to their category and type when
+ * flushed. Totals can drift if an instance stops without flushing; {@link #rebuild()} recomputes them, on
+ * startup when enabled. Flushes and rebuilds of one instance take turns; a rebuild is only exact while no
+ * other instance is flushing, as it counts the changes those still hold and will flush on top.
+ */
+@Component
+public class RollupCounters {
+
+    public static final List<String> DIMENSIONS = List.of("category", "type");
+
+    private static final Logger log = LoggerFactory.getLogger(RollupCounters.class);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ResourceRepository resourceRepository;
+    private final Duration flushInterval;
+    private final boolean rebuildOnStartup;
+    private final Map<String, RollupDelta> byRollup = new ConcurrentHashMap<>();
+    private final Map<String, RollupDelta> byResource = new ConcurrentHashMap<>();
+    // Completes when the last flush or rebuild queued so far is done, guarded by itself
+    private Mono<Void> turn = Mono.empty();
+    private Disposable flusher;
+
+    public RollupCounters(ReactiveMongoTemplate mongoTemplate, ResourceRepository resourceRepository,
+                          @Value("${library.rollup.flush-interval:1s}") Duration flushInterval,
+                          @Value("${library.rollup.rebuild-on-startup:false}") boolean rebuildOnStartup) {
+        this.mongoTemplate = mongoTemplate;
+        this.resourceRepository = resourceRepository;
+        this.flushInterval = flushInterval;
+        this.rebuildOnStartup = rebuildOnStartup;
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher = Flux.interval(flushInterval)
+                .concatMap(tick -> flush().onErrorResume(error -> {
+                    log.warn("Rollup flush failed, changes kept for the next one: {}", error.getMessage());
+                    return Mono.empty();
+                }))
+                .subscribe();
+    }
+
+    /**
+     * Changes an instance had not flushed when it crashed are only in the rollups once they are rebuilt.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (rebuildOnStartup) {
+            rebuild().subscribe(rollups -> log.info("Rebuilt {} availability rollups", rollups),
+                    error -> log.warn("Could not rebuild the availability rollups: {}", error.getMessage()));
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        flusher.dispose();
+        flush().doOnError(error -> log.error("Lost pending rollup changes: {}", error.getMessage()))
+                .onErrorResume(error -> Mono.empty())
+                .block(Duration.ofSeconds(10));
+    }
+
+    public void added(Resource resource) {
+        record(resource, new RollupDelta(1, units(resource.getUnitsAvailable()), units(resource.getUnitsOwed())));
+    }
+
+    public void removed(Resource resource) {
+        record(resource, new RollupDelta(-1, -units(resource.getUnitsAvailable()), -units(resource.getUnitsOwed())));
+    }
+
+    /**
+     * Records units moved on a resource whose category and type are known.
+     */
+    public void unitsChanged(Resource resource, int unitsAvailable, int unitsOwed) {
+        record(resource, new RollupDelta(0, unitsAvailable, unitsOwed));
+    }
+
+    /**
+     * Records units moved on a resource known only by id; its rollups are looked up when flushing.
+     */
+    public void unitsChanged(String id, int unitsAvailable, int unitsOwed) {
+        byResource.merge(id, new RollupDelta(0, unitsAvailable, unitsOwed), RollupDelta::plus);
+    }
+
+    public Mono<AvailabilityRollup> find(String dimension, String key) {
+        return mongoTemplate.findById(AvailabilityRollup.rollupId(dimension, key), AvailabilityRollup.class);
+    }
+
+    public Flux<AvailabilityRollup> findAll(String dimension) {
+        return mongoTemplate.find(new Query(where("dimension").is(dimension)), AvailabilityRollup.class);
+    }
+
+    public Mono<Void> flush() {
+        return inTurn(this::flushPending);
+    }
+
+    /**
+     * Recomputes every rollup from the resources with one aggregation per dimension and applies the difference
+     * with the stored totals as $inc, so a flush of another instance landing meanwhile is not overwritten. Rollups
+     * nothing belongs to anymore are removed once they are back to zero. No flush of this instance runs
+     * meanwhile: the changes pending when it starts are already in the resources and are dropped, the ones
+     * recorded after it are flushed on top once it is done. Only a change landing while the aggregation itself
+     * runs may be counted twice, and so may the pending changes of other instances. Emits the number of rollups
+     * recomputed.
+     */
+    public Mono<Long> rebuild() {
+        return inTurn(() -> {
+            byRollup.clear();
+            byResource.clear();
+            return aggregate();
+        });
+    }
+
+    private Mono<Void> flushPending() {
+        Map<String, RollupDelta> rollups = drain(byRollup);
+        Map<String, RollupDelta> resources = drain(byResource);
+        if (rollups.isEmpty() && resources.isEmpty()) {
+            return Mono.empty();
+        }
+        return resolve(resources, rollups)
+                .doOnError(error -> {
+                    rollups.forEach((id, delta) -> byRollup.merge(id, delta, RollupDelta::plus));
+                    resources.forEach((id, delta) -> byResource.merge(id, delta, RollupDelta::plus));
+                })
+                .flatMap(this::write);
+    }
+
+    private Mono<Long> aggregate() {
+        return Flux.fromIterable(DIMENSIONS)
+                .concatMap(dimension -> Mono.zip(
+                                findAll(dimension).collectMap(AvailabilityRollup::getId),
+                                resourceRepository.aggregateStats(List.of(dimension))
+                                        .map(stats -> {
+                                            AvailabilityRollup rollup = new AvailabilityRollup();
+                                            rollup.setKey("category".equals(dimension) ? stats.getCategory() : stats.getType());
+                                            rollup.setId(AvailabilityRollup.rollupId(dimension, rollup.getKey()));
+                                            rollup.setResources(stats.getResources());
+                                            rollup.setUnitsAvailable(stats.getUnitsAvailable());
+                                            rollup.setUnitsOwed(stats.getUnitsOwed());
+                                            return rollup;
+                                        })
+                                        .filter(rollup -> rollup.getKey() != null)
+                                        .collectMap(AvailabilityRollup::getId))
+                        .flatMap(rollups -> {
+                            Map<String, AvailabilityRollup> stored = rollups.getT1();
+                            Map<String, AvailabilityRollup> computed = rollups.getT2();
+                            Map<String, RollupDelta> differences = new HashMap<>();
+                            computed.forEach((id, rollup) -> differences.put(id, totals(rollup)));
+                            stored.forEach((id, rollup) -> differences.merge(id, totals(rollup).negate(), RollupDelta::plus));
+                            Query emptied = new Query(where("dimension").is(dimension)
+                                    .and("id").nin(computed.keySet())
+                                    .and("resources").is(0L)
+                                    .and("unitsAvailable").is(0L)
+                                    .and("unitsOwed").is(0L));
+                            return write(differences)
+                                    .then(mongoTemplate.remove(emptied, AvailabilityRollup.class))
+                                    .thenReturn((long) computed.size());
+                        }))
+                .reduce(0L, Long::sum);
+    }
+
+    /**
+     * Runs the work once every flush or rebuild subscribed before it is done. The turn is taken on
+     * subscription and given back however the work ends, so an unsubscribed call never holds it; a call
+     * cancelled while waiting still gives it back only after the one before it is done.
+     */
+    private <T> Mono<T> inTurn(Supplier<Mono<T>> work) {
+        return Mono.defer(() -> {
+            Sinks.Empty<Void> done = Sinks.empty();
+            Mono<Void> previous;
+            synchronized (this) {
+                previous = turn;
+                turn = done.asMono();
+            }
+            return previous.then(Mono.defer(work))
+                    .doFinally(signal -> previous.subscribe(null, null, done::tryEmitEmpty));
+        });
+    }
+
+    private void record(Resource resource, RollupDelta delta) {
+        rollupIds(resource).forEach(id -> byRollup.merge(id, delta, RollupDelta::plus));
+    }
+
+    private List<String> rollupIds(Resource resource) {
+        List<String> ids = new ArrayList<>(DIMENSIONS.size());
+        if (resource.getCategory() != null) {
+            ids.add(AvailabilityRollup.rollupId("category", resource.getCategory()));
+        }
+        if (resource.getType() != null) {
+            ids.add(AvailabilityRollup.rollupId("type", resource.getType()));
+        }
+        return ids;
+    }
+
+    private Mono<Map<String, RollupDelta>> resolve(Map<String, RollupDelta> resources,
+                                                   Map<String, RollupDelta> rollups) {
+        Map<String, RollupDelta> resolved = new HashMap<>(rollups);
+        if (resources.isEmpty()) {
+            return Mono.just(resolved);
+        }
+        Query owners = new Query(where("id").in(resources.keySet()));
+        owners.fields().include("id").include("category").include("type");
+        return mongoTemplate.find(owners, Resource.class)
+                .doOnNext(resource -> rollupIds(resource).forEach(id ->
+                        resolved.merge(id, resources.get(resource.getId()), RollupDelta::plus)))
+                .then(Mono.just(resolved));
+    }
+
+    /**
+     * Writes the deltas as one unordered bulk. When it fails, puts back the deltas that were not written for the
+     * next flush: only those of the failed writes when Mongo reports them, every one otherwise.
+     */
+    private Mono<Void> write(Map<String, RollupDelta> rollups) {
+        List<String> ids = rollups.entrySet().stream()
+                .filter(entry -> !entry.getValue().equals(new RollupDelta(0, 0, 0)))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        List<UpdateOneModel<Document>> writes = ids.stream()
+                .map(id -> {
+                    RollupDelta delta = rollups.get(id);
+                    int separator = id.indexOf(':');
+                    return new UpdateOneModel<Document>(new Document("_id", id), new Document()
+                            .append("$inc", new Document("resources", delta.getResources())
+                                    .append("unitsAvailable", delta.getUnitsAvailable())
+                                    .append("unitsOwed", delta.getUnitsOwed()))
+                            .append("$setOnInsert", new Document("dimension", id.substring(0, separator))
+                                    .append("key", id.substring(separator + 1))),
+                            new UpdateOptions().upsert(true));
+                })
+                .collect(Collectors.toList());
+        if (writes.isEmpty()) {
+            return Mono.empty();
+        }
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(AvailabilityRollup.class))
+                .flatMap(collection -> Mono.from(collection.bulkWrite(writes, new BulkWriteOptions().ordered(false))))
+                .doOnError(error -> {
+                    // The bulk is unordered, every write but the failed ones was applied
+                    List<String> failed = error instanceof MongoBulkWriteException
+                            ? ((MongoBulkWriteException) error).getWriteErrors().stream()
+                                    .map(writeError -> ids.get(writeError.getIndex()))
+                                    .collect(Collectors.toList())
+                            : ids;
+                    failed.forEach(id -> byRollup.merge(id, rollups.get(id), RollupDelta::plus));
+                })
+                .then();
+    }
+
+    private static Map<String, RollupDelta> drain(Map<String, RollupDelta> pending) {
+        Map<String, RollupDelta> drained = new HashMap<>();
+        Set<String> ids = Set.copyOf(pending.keySet());
+        ids.forEach(id -> {
+            RollupDelta delta = pending.remove(id);
+            if (delta != null) {
+                drained.put(id, delta);
+            }
+        });
+        return drained;
+    }
+
+    private static RollupDelta totals(AvailabilityRollup rollup) {
+        return new RollupDelta(total(rollup.getResources()), total(rollup.getUnitsAvailable()),
+                total(rollup.getUnitsOwed()));
+    }
+
+    private static long total(Long total) {
+        return total == null ? 0 : total;
+    }
+
+    private static long units(Integer units) {
+        return units == null ? 0 : units;
+    }
+}
@@ -0,0 +1,23 @@
+package com.santiagoposada.libraryreactive.repository;
+
+import lombok.Value;
+
+/**
+ * Pending change to an availability rollup, or to the units of one resource before its rollups are known.
+ */
+@Value
+public class RollupDelta {
+
+    long resources;
+    long unitsAvailable;
+    long unitsOwed;
+
+    public RollupDelta negate() {
+        return new RollupDelta(-resources, -unitsAvailable, -unitsOwed);
+    }
+
+    public RollupDelta plus(RollupDelta other) {
+        return new RollupDelta(resources + other.resources, unitsAvailable + other.unitsAvailable,
+                unitsOwed + other.unitsOwed);
+    }
+}
@@ -0,0 +1,319 @@
+package com.santiagoposada.libraryreactive.repository;
+
+import com.santiagoposada.libraryreactive.config.MongoRoutingConfig;
+import com.santiagoposada.libraryreactive.entity.Resource;
+import com.santiagoposada.libraryreactive.entity.ResourceShard;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Split counter layout for extremely hot resources. The units of a promoted resource live in N
+ * {@link ResourceShard} documents and its own counters stay at zero; borrows and returns hit one random
+ * shard with a conditional $inc and totals are summed on read.
+ *
+ * The shards read for a total are kept for a short while: within that time a borrow or return adds the shard
+ * it just changed to the others as last read, and reads sum them without going back to Mongo. Changes other
+ * instances make to the other shards show up once the snapshot expires.
+ */
+@Component
+public class ShardedCounters {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardedCounters.class);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    // Sharded resources known to this instance, so their borrows skip the main document
+    private final Map<String, Resource> sharded = new ConcurrentHashMap<>();
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final long snapshotTtlNanos;
+
+    public ShardedCounters(@Qualifier(MongoRoutingConfig.COUNTERS) ReactiveMongoTemplate mongoTemplate,
+                           @Value("${library.shards.snapshot-ttl:1s}") Duration snapshotTtl) {
+        this.mongoTemplate = mongoTemplate;
+        this.snapshotTtlNanos = snapshotTtl.toNanos();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadShardedResources() {
+        mongoTemplate.find(new Query(where("shards").exists(true)), Resource.class)
+                .subscribe(this::register,
+                        error -> log.warn("Could not load sharded resources: {}", error.getMessage()));
+    }
+
+    public boolean isSharded(String id) {
+        return sharded.containsKey(id);
+    }
+
+    /**
+     * Borrows from the shards of a resource this instance knows as sharded. Completes empty when no shard has
+     * units left, or when the resource turns out to be no longer sharded, in which case the hint is dropped.
+     */
+    public Mono<Resource> borrowUnit(String id, LocalDate borrowDate) {
+        Resource resource = sharded.get(id);
+        return resource == null ? Mono.empty()
+                : borrowUnit(resource, borrowDate).switchIfEmpty(forgetIfNotSharded(id));
+    }
+
+    /**
+     * Takes one unit from a random shard holding any. Emits the resource with its summed totals after
+     * the borrow, or completes empty when no shard has units left.
+     */
+    public Mono<Resource> borrowUnit(Resource resource, LocalDate borrowDate) {
+        register(resource);
+        Update update = new Update().inc("unitsAvailable", -1).inc("unitsOwed", 1).set("lastBorrow", borrowDate);
+        return takeFromAnyShard(resource, "unitsAvailable", update)
+                .flatMap(shard -> withTotals(resource, shard));
+    }
+
+    /**
+     * Returns to the shards of a resource this instance knows as sharded, completing empty like
+     * {@link #borrowUnit(String, LocalDate)}.
+     */
+    public Mono<Resource> returnUnit(String id) {
+        Resource resource = sharded.get(id);
+        return resource == null ? Mono.empty() : returnUnit(resource).switchIfEmpty(forgetIfNotSharded(id));
+    }
+
+    /**
+     * Gives back one unit to a random shard with units owed. Emits the resource with its summed totals
+     * after the return, or completes empty when nothing is owed.
+     */
+    public Mono<Resource> returnUnit(Resource resource) {
+        register(resource);
+        Update update = new Update().inc("unitsAvailable", 1).inc("unitsOwed", -1);
+        return takeFromAnyShard(resource, "unitsOwed", update)
+                .flatMap(shard -> withTotals(resource, shard));
+    }
+
+    /**
+     * Replaces the counters of a sharded resource with the sum of its shards; plain resources pass through.
+     */
+    public Mono<Resource> overlay(Resource resource) {
+        if (resource.getShards() == null) {
+            return Mono.just(resource);
+        }
+        Snapshot snapshot = fresh(resource);
+        return snapshot == null ? withTotals(resource) : Mono.just(snapshot.total(resource));
+    }
+
+    /**
+     * Moves the units of a plain resource into the given number of shards. Emits the promoted resource,
+     * or completes empty when it does not exist or is already sharded. When the shards cannot be written the
+     * promotion is undone, so the units are back on the main document before the error is propagated.
+     */
+    public Mono<Resource> promote(String id, int shards) {
+        Query plain = new Query(where("id").is(id).and("shards").exists(false));
+        Update split = new Update().set("shards", shards).set("unitsAvailable", 0).set("unitsOwed", 0).inc("version", 1);
+        return mongoTemplate.findAndModify(plain, split, Resource.class)
+                .flatMap(previous -> mongoTemplate.insertAll(IntStream.range(0, shards)
+                                .mapToObj(index -> new ResourceShard(id, index,
+                                        share(previous.getUnitsOwed(), shards, index),
+                                        share(previous.getUnitsAvailable(), shards, index)))
+                                .collect(Collectors.toList()))
+                        .then(Mono.fromSupplier(() -> {
+                            previous.setShards(shards);
+                            snapshots.remove(id);
+                            register(previous);
+                            return previous;
+                        }))
+                        .onErrorResume(error -> undoPromote(previous, shards).then(Mono.error(error))));
+    }
+
+    /**
+     * Folds the shards of a resource back into its own counters. Each shard is removed atomically and its
+     * units added to the main document, so borrows racing with the demotion are not lost. Emits the demoted
+     * resource, or completes empty when it does not exist or is not sharded.
+     */
+    public Mono<Resource> demote(String id) {
+        Query split = new Query(where("id").is(id).and("shards").exists(true));
+        return mongoTemplate.findAndModify(split, new Update().unset("shards").inc("version", 1), Resource.class)
+                .doOnNext(previous -> forget(id))
+                .flatMap(previous -> Flux.range(0, previous.getShards())
+                        .concatMap(index -> mongoTemplate.findAndRemove(
+                                new Query(where("id").is(ResourceShard.shardId(id, index))), ResourceShard.class))
+                        .concatMap(shard -> {
+                            Update fold = new Update()
+                                    .inc("unitsAvailable", shard.getUnitsAvailable())
+                                    .inc("unitsOwed", shard.getUnitsOwed());
+                            if (shard.getLastBorrow() != null) {
+                                fold.max("lastBorrow", shard.getLastBorrow());
+                            }
+                            return mongoTemplate.updateFirst(new Query(where("id").is(id)), fold, Resource.class);
+                        })
+                        .then(mongoTemplate.findById(id, Resource.class)));
+    }
+
+    /**
+     * Removes the shards of a deleted resource, so its units cannot be borrowed or returned any more.
+     */
+    public Mono<Void> removed(Resource resource) {
+        forget(resource.getId());
+        if (resource.getShards() == null) {
+            return Mono.empty();
+        }
+        return mongoTemplate.remove(new Query(where("resourceId").is(resource.getId())), ResourceShard.class).then();
+    }
+
+    /**
+     * Puts the units of a failed promotion back on the main document: the shards that made it in are removed
+     * with what they hold, the ones that did not are counted with the share they were given.
+     */
+    private Mono<Void> undoPromote(Resource previous, int shards) {
+        String id = previous.getId();
+        return Flux.range(0, shards)
+                .concatMap(index -> mongoTemplate.findAndRemove(
+                                new Query(where("id").is(ResourceShard.shardId(id, index))), ResourceShard.class)
+                        .defaultIfEmpty(new ResourceShard(id, index,
+                                share(previous.getUnitsOwed(), shards, index),
+                                share(previous.getUnitsAvailable(), shards, index))))
+                .collectList()
+                .flatMap(removed -> mongoTemplate.updateFirst(
+                        new Query(where("id").is(id).and("shards").is(shards)),
+                        new Update().unset("shards")
+                                .inc("unitsAvailable", removed.stream().mapToInt(ResourceShard::getUnitsAvailable).sum())
+                                .inc("unitsOwed", removed.stream().mapToInt(ResourceShard::getUnitsOwed).sum())
+                                .inc("version", 1),
+                        Resource.class))
+                .doOnError(error -> log.error("Could not undo the promotion of resource {}: {}", id, error.getMessage()))
+                .then();
+    }
+
+    private void register(Resource resource) {
+        sharded.put(resource.getId(), resource);
+    }
+
+    private void forget(String id) {
+        sharded.remove(id);
+        snapshots.remove(id);
+    }
+
+    /**
+     * A shard miss may come from another instance having demoted or deleted the resource, which only drops
+     * the hint on that instance: re-reads the document and drops it here too when it is no longer sharded.
+     */
+    private Mono<Resource> forgetIfNotSharded(String id) {
+        return mongoTemplate.findById(id, Resource.class)
+                .map(resource -> resource.getShards() != null)
+                .defaultIfEmpty(false)
+                .doOnNext(stillSharded -> {
+                    if (!stillSharded) {
+                        forget(id);
+                    }
+                })
+                .then(Mono.empty());
+    }
+
+    private Mono<ResourceShard> takeFromAnyShard(Resource resource, String counter, Update update) {
+        int shards = resource.getShards();
+        int start = ThreadLocalRandom.current().nextInt(shards);
+        // Start on a random shard and walk the rest only if it is empty
+        return Flux.range(0, shards)
+                .concatMap(offset -> mongoTemplate.findAndModify(
+                        new Query(where("id").is(ResourceShard.shardId(resource.getId(), (start + offset) % shards))
+                                .and(counter).gt(0)),
+                        update, FindAndModifyOptions.options().returnNew(true), ResourceShard.class))
+                .next();
+    }
+
+    /**
+     * Totals after changing the given shard: the shard as it is now with the others from a fresh snapshot,
+     * or every shard read again when there is none.
+     */
+    private Mono<Resource> withTotals(Resource resource, ResourceShard changed) {
+        Snapshot snapshot = snapshots.computeIfPresent(resource.getId(),
+                (id, current) -> current.isFresh(resource) ? current.with(changed) : null);
+        return snapshot == null ? withTotals(resource) : Mono.just(snapshot.total(resource));
+    }
+
+    private Mono<Resource> withTotals(Resource resource) {
+        Query shardsOf = new Query(where("id").in(IntStream.range(0, resource.getShards())
+                .mapToObj(index -> ResourceShard.shardId(resource.getId(), index))
+                .collect(Collectors.toList())));
+        long readAt = System.nanoTime();
+        return mongoTemplate.find(shardsOf, ResourceShard.class)
+                .collectList()
+                .map(shards -> {
+                    Snapshot snapshot = new Snapshot(resource.getShards(), shards, readAt);
+                    snapshots.put(resource.getId(), snapshot);
+                    return snapshot.total(resource);
+                });
+    }
+
+    private Snapshot fresh(Resource resource) {
+        Snapshot snapshot = snapshots.get(resource.getId());
+        return snapshot != null && snapshot.isFresh(resource) ? snapshot : null;
+    }
+
+    private static int share(Integer units, int shards, int index) {
+        int total = units == null ? 0 : units;
+        return total / shards + (index < total % shards ? 1 : 0);
+    }
+
+    /**
+     * The shards of a resource as last seen by this instance. Never changed in place: a changed shard makes
+     * a new snapshot keeping the time the others were read.
+     */
+    private class Snapshot {
+        private final int count;
+        private final Map<String, ResourceShard> shards;
+        private final long readAt;
+
+        Snapshot(int count, List<ResourceShard> shards, long readAt) {
+            this(count, shards.stream().collect(Collectors.toMap(ResourceShard::getId, shard -> shard)), readAt);
+        }
+
+        private Snapshot(int count, Map<String, ResourceShard> shards, long readAt) {
+            this.count = count;
+            this.shards = shards;
+            this.readAt = readAt;
+        }
+
+        boolean isFresh(Resource resource) {
+            return count == resource.getShards() && System.nanoTime() - readAt < snapshotTtlNanos;
+        }
+
+        Snapshot with(ResourceShard changed) {
+            Map<String, ResourceShard> updated = new HashMap<>(shards);
+            updated.put(changed.getId(), changed);
+            return new Snapshot(count, updated, readAt);
+        }
+
+        Resource total(Resource resource) {
+            Resource total = new Resource(resource.getId(), resource.getName(), resource.getCategory(),
+                    resource.getType(), resource.getLastBorrow(),
+                    shards.values().stream().mapToInt(ResourceShard::getUnitsOwed).sum(),
+                    shards.values().stream().mapToInt(ResourceShard::getUnitsAvailable).sum());
+            shards.values().stream()
+                    .map(ResourceShard::getLastBorrow)
+                    .filter(Objects::nonNull)
+                    .max(LocalDate::compareTo)
+                    .ifPresent(total::setLastBorrow);
+            total.setVersion(resource.getVersion());
+            total.setShards(resource.getShards());
+            return total;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.santiagoposada.libraryreactive.repository;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/**
+ * Accumulated change to the counters of one resource, applied with a single $inc.
+ */
+@Value
+public class UnitsDelta {
+
+    String id;
+    int unitsAvailable;
+    int unitsOwed;
+    LocalDate lastBorrow;
+}
@@ -0,0 +1,267 @@
+package com.santiagoposada.libraryreactive.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.santiagoposada.libraryreactive.entity.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Optional write-behind mode for borrow and return. The units of each resource in use are kept in memory,
+ * availability is checked against them, and the accumulated deltas are flushed to Mongo as one bulk of
+ * $inc updates every flush interval instead of one document write per request.
+ *
+ * Counts are only authoritative for a single instance: enable it where one instance owns the hot titles.
+ */
+@Component
+public class WriteBehindCounters {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindCounters.class);
+
+    private final ResourceRepository resourceRepository;
+    private final ResourceCache resourceCache;
+    private final boolean enabled;
+    private final Duration flushInterval;
+    private final Object[] stripes;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private Disposable flusher;
+
+    public WriteBehindCounters(ResourceRepository resourceRepository, ResourceCache resourceCache,
+                               @Value("${library.write-behind.enabled:false}") boolean enabled,
+                               @Value("${library.write-behind.flush-interval:500ms}") Duration flushInterval,
+                               @Value("${library.write-behind.stripes:64}") int stripes) {
+        this.resourceRepository = resourceRepository;
+        this.resourceCache = resourceCache;
+        this.enabled = enabled;
+        this.flushInterval = flushInterval;
+        this.stripes = new Object[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            flusher = Flux.interval(flushInterval)
+                    .concatMap(tick -> flush().onErrorResume(error -> {
+                        log.warn("Write-behind flush failed, deltas kept for the next one: {}", error.getMessage());
+                        return Mono.empty();
+                    }))
+                    .subscribe();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flusher != null) {
+            flusher.dispose();
+        }
+        flush().block(Duration.ofSeconds(10));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isTracked(String id) {
+        return counters.containsKey(id);
+    }
+
+    /**
+     * Takes one unit in memory. Emits the resource as it is after the borrow, or completes empty when
+     * the resource does not exist or has no units left.
+     */
+    public Mono<Resource> borrowUnit(String id, LocalDate borrowDate) {
+        return update(id, -1, borrowDate);
+    }
+
+    /**
+     * Gives back one unit in memory. Emits the resource as it is after the return, or completes empty when
+     * the resource does not exist or has no units owed.
+     */
+    public Mono<Resource> returnUnit(String id) {
+        return update(id, 1, null);
+    }
+
+    /**
+     * Returns the resource with the in-memory units when it is tracked, the resource itself otherwise.
+     */
+    public Resource overlay(Resource resource) {
+        Counter counter = resource.getId() == null ? null : counters.get(resource.getId());
+        if (counter == null) {
+            return resource;
+        }
+        synchronized (stripe(resource.getId())) {
+            Resource overlaid = new Resource(resource.getId(), resource.getName(), resource.getCategory(),
+                    resource.getType(), counter.lastBorrow != null ? counter.lastBorrow : resource.getLastBorrow(),
+                    counter.unitsOwed, counter.unitsAvailable);
+            overlaid.setVersion(resource.getVersion());
+            return overlaid;
+        }
+    }
+
+    /**
+     * Stops tracking the resource, writing what it still has pending. Used before the document is
+     * overwritten or deleted so the in-memory view does not outlive it.
+     */
+    public Mono<Void> release(String id) {
+        UnitsDelta delta = null;
+        synchronized (stripe(id)) {
+            Counter counter = counters.remove(id);
+            if (counter != null) {
+                counter.retired = true;
+                delta = counter.drain(id);
+            }
+        }
+        return delta == null ? Mono.empty() : write(List.of(delta));
+    }
+
+    public Mono<Void> flush() {
+        List<UnitsDelta> deltas = new ArrayList<>();
+        counters.forEach((id, counter) -> {
+            synchronized (stripe(id)) {
+                UnitsDelta delta = counter.drain(id);
+                if (delta != null) {
+                    deltas.add(delta);
+                } else if (!counter.touched) {
+                    // Idle since the last flush: drop it so the next borrow reloads fresh units
+                    counter.retired = true;
+                    counters.remove(id, counter);
+                }
+                counter.touched = false;
+            }
+        });
+        if (deltas.isEmpty()) {
+            return Mono.empty();
+        }
+        return write(deltas).doOnError(error -> failed(error, deltas).forEach(this::restore));
+    }
+
+    /**
+     * The deltas a failed flush did not write. The bulk is unordered, so when Mongo reports its write errors
+     * every delta but those was applied and must not be put back; otherwise none is known to be.
+     */
+    private static List<UnitsDelta> failed(Throwable error, List<UnitsDelta> deltas) {
+        if (!(error instanceof MongoBulkWriteException)) {
+            return deltas;
+        }
+        return ((MongoBulkWriteException) error).getWriteErrors().stream()
+                .map(writeError -> deltas.get(writeError.getIndex()))
+                .collect(Collectors.toList());
+    }
+
+    private Mono<Void> write(List<UnitsDelta> deltas) {
+        return resourceRepository.incrementUnits(deltas)
+                .doOnSuccess(modified -> deltas.forEach(delta -> resourceCache.invalidate(delta.getId())))
+                .then();
+    }
+
+    private Mono<Counter> counter(String id) {
+        Counter counter = counters.get(id);
+        if (counter != null) {
+            return Mono.just(counter);
+        }
+        // Split counters already spread the writes of a resource, they are not coalesced on top
+        return resourceRepository.findById(id)
+                .filter(resource -> resource.getShards() == null)
+                .map(resource -> counters.computeIfAbsent(id, key -> new Counter(resource)));
+    }
+
+    private Mono<Resource> update(String id, int availableChange, LocalDate borrowDate) {
+        return counter(id).flatMap(counter -> {
+            synchronized (stripe(id)) {
+                if (counter.retired) {
+                    // Evicted between lookup and lock: start over on the current counter
+                    return update(id, availableChange, borrowDate);
+                }
+                if (counter.unitsAvailable + availableChange < 0 || counter.unitsOwed - availableChange < 0) {
+                    return Mono.empty();
+                }
+                counter.unitsAvailable += availableChange;
+                counter.unitsOwed -= availableChange;
+                counter.pendingAvailable += availableChange;
+                counter.pendingOwed -= availableChange;
+                if (borrowDate != null) {
+                    counter.lastBorrow = borrowDate;
+                    counter.pendingLastBorrow = borrowDate;
+                }
+                counter.touched = true;
+                return Mono.just(counter.snapshot());
+            }
+        });
+    }
+
+    private void restore(UnitsDelta delta) {
+        Counter counter = counters.get(delta.getId());
+        if (counter == null || counter.retired) {
+            write(List.of(delta)).subscribe(
+                    null,
+                    error -> log.error("Lost write-behind delta for resource {}: {}", delta.getId(), error.getMessage()));
+            return;
+        }
+        synchronized (stripe(delta.getId())) {
+            counter.pendingAvailable += delta.getUnitsAvailable();
+            counter.pendingOwed += delta.getUnitsOwed();
+            if (counter.pendingLastBorrow == null) {
+                counter.pendingLastBorrow = delta.getLastBorrow();
+            }
+        }
+    }
+
+    private Object stripe(String id) {
+        return stripes[(id.hashCode() & Integer.MAX_VALUE) % stripes.length];
+    }
+
+    /**
+     * Guarded by the stripe of its id.
+     */
+    private static class Counter {
+        private final Resource resource;
+        private int unitsAvailable;
+        private int unitsOwed;
+        private LocalDate lastBorrow;
+        private int pendingAvailable;
+        private int pendingOwed;
+        private LocalDate pendingLastBorrow;
+        private boolean touched = true;
+        private boolean retired;
+
+        Counter(Resource resource) {
+            this.resource = resource;
+            this.unitsAvailable = resource.getUnitsAvailable() == null ? 0 : resource.getUnitsAvailable();
+            this.unitsOwed = resource.getUnitsOwed() == null ? 0 : resource.getUnitsOwed();
+            this.lastBorrow = resource.getLastBorrow();
+        }
+
+        UnitsDelta drain(String id) {
+            if (pendingAvailable == 0 && pendingOwed == 0 && pendingLastBorrow == null) {
+                return null;
+            }
+            UnitsDelta delta = new UnitsDelta(id, pendingAvailable, pendingOwed, pendingLastBorrow);
+            pendingAvailable = 0;
+            pendingOwed = 0;
+            pendingLastBorrow = null;
+            return delta;
+        }
+
+        Resource snapshot() {
+            return new Resource(resource.getId(), resource.getName(), resource.getCategory(), resource.getType(),
+                    lastBorrow, unitsOwed, unitsAvailable);
+        }
+    }
+}
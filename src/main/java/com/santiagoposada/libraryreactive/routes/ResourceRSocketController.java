@@ -0,0 +1,151 @@
+package com.santiagoposada.libraryreactive.routes;
+
+import com.santiagoposada.libraryreactive.dto.BulkResultDTO;
+import com.santiagoposada.libraryreactive.dto.PageRequestDTO;
+import com.santiagoposada.libraryreactive.dto.ResourceDTO;
+import com.santiagoposada.libraryreactive.usecase.BorrowResourceUseCase;
+import com.santiagoposada.libraryreactive.usecase.BulkBorrowUseCase;
+import com.santiagoposada.libraryreactive.usecase.GetAllUseCase;
+import com.santiagoposada.libraryreactive.usecase.GetByCategoryUseCase;
+import com.santiagoposada.libraryreactive.usecase.GetByTypeUseCase;
+import com.santiagoposada.libraryreactive.usecase.GetResourceByIdUseCase;
+import com.santiagoposada.libraryreactive.usecase.ReturnUseCase;
+import com.santiagoposada.libraryreactive.utils.ResourceFields;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * The use cases over RSocket, for services that keep one multiplexed connection to the library instead of an
+ * HTTP request per call. Reads and borrow/return are request-response, lists are request-stream paced by the
+ * requester's demand, and bulk borrow is a request-channel taking ids and answering one result per id.
+ */
+@Controller
+public class ResourceRSocketController {
+
+    private final GetResourceByIdUseCase getResourceByIdUseCase;
+    private final BorrowResourceUseCase borrowResourceUseCase;
+    private final ReturnUseCase returnUseCase;
+    private final GetAllUseCase getAllUseCase;
+    private final GetByTypeUseCase getByTypeUseCase;
+    private final GetByCategoryUseCase getByCategoryUseCase;
+    private final BulkBorrowUseCase bulkBorrowUseCase;
+    private final int channelBatchSize;
+    private final Duration channelWindow;
+
+    public ResourceRSocketController(GetResourceByIdUseCase getResourceByIdUseCase,
+                                     BorrowResourceUseCase borrowResourceUseCase,
+                                     ReturnUseCase returnUseCase,
+                                     GetAllUseCase getAllUseCase,
+                                     GetByTypeUseCase getByTypeUseCase,
+                                     GetByCategoryUseCase getByCategoryUseCase,
+                                     BulkBorrowUseCase bulkBorrowUseCase,
+                                     @Value("${library.rsocket.channel-batch-size:100}") int channelBatchSize,
+                                     @Value("${library.rsocket.channel-window:20ms}") Duration channelWindow,
+                                     @Value("${library.bulk.max-ids:100}") int maxIds) {
+        this.getResourceByIdUseCase = getResourceByIdUseCase;
+        this.borrowResourceUseCase = borrowResourceUseCase;
+        this.returnUseCase = returnUseCase;
+        this.getAllUseCase = getAllUseCase;
+        this.getByTypeUseCase = getByTypeUseCase;
+        this.getByCategoryUseCase = getByCategoryUseCase;
+        this.bulkBorrowUseCase = bulkBorrowUseCase;
+        // A batch over the bulk limit would be rejected whole
+        this.channelBatchSize = Math.min(channelBatchSize, maxIds);
+        this.channelWindow = channelWindow;
+    }
+
+    @MessageMapping("resource.{id}")
+    public Mono<ResourceDTO> getResourceById(@DestinationVariable String id) {
+        return getResourceByIdUseCase.apply(id);
+    }
+
+    @MessageMapping("resource.{id}.borrow")
+    public Mono<String> borrow(@DestinationVariable String id) {
+        return borrowResourceUseCase.apply(id);
+    }
+
+    @MessageMapping("resource.{id}.return")
+    public Mono<String> returnResource(@DestinationVariable String id) {
+        return returnUseCase.apply(id);
+    }
+
+    @MessageMapping("resources")
+    public Flux<ResourceDTO> getAll(@Payload(required = false) PageRequestDTO pageRequest) {
+        return pageRequest(pageRequest).flatMapMany(getAllUseCase::stream);
+    }
+
+    @MessageMapping("resources.type.{type}")
+    public Flux<ResourceDTO> getByType(@DestinationVariable String type,
+                                       @Payload(required = false) PageRequestDTO pageRequest) {
+        return pageRequest(pageRequest).flatMapMany(request -> getByTypeUseCase.stream(type, request));
+    }
+
+    @MessageMapping("resources.category.{category}")
+    public Flux<ResourceDTO> getByCategory(@DestinationVariable String category,
+                                           @Payload(required = false) PageRequestDTO pageRequest) {
+        return pageRequest(pageRequest).flatMapMany(request -> getByCategoryUseCase.stream(category, request));
+    }
+
+    /**
+     * Borrows the ids as they arrive, in batches of up to the batch size or whatever came within the window,
+     * so a requester sending a few ids and waiting for them is not held until a batch fills.
+     */
+    @MessageMapping("resources.borrow")
+    public Flux<BulkResultDTO> bulkBorrow(Flux<String> ids) {
+        return batches(ids).concatMap(bulkBorrowUseCase);
+    }
+
+    /**
+     * Cuts the ids into batches only as they are requested, unlike bufferTimeout which emits on its timer
+     * whether or not there is demand and fails when the borrows fall behind. Window ticks close the batch
+     * being filled and are dropped while nobody asks for one, so a slow borrow holds back the requester
+     * instead: the ids are pulled through bounded prefetches only.
+     */
+    private Flux<List<String>> batches(Flux<String> ids) {
+        return ids.publish(shared -> Flux.defer(() -> {
+            AtomicInteger filled = new AtomicInteger();
+            Flux<Optional<String>> ticks = Flux.interval(channelWindow)
+                    .onBackpressureDrop()
+                    .map(tick -> Optional.<String>empty())
+                    .takeUntilOther(shared.then());
+            return shared.map(Optional::of)
+                    .mergeWith(ticks)
+                    .bufferUntil(item -> {
+                        if (item.isEmpty() || filled.incrementAndGet() == channelBatchSize) {
+                            filled.set(0);
+                            return true;
+                        }
+                        return false;
+                    })
+                    .map(batch -> batch.stream().flatMap(Optional::stream).collect(Collectors.toList()))
+                    .filter(batch -> !batch.isEmpty());
+        }));
+    }
+
+    /**
+     * Fields come as a set in the payload rather than the comma separated query parameter, and are checked
+     * the same way.
+     */
+    private static Mono<PageRequestDTO> pageRequest(PageRequestDTO pageRequest) {
+        if (pageRequest == null) {
+            return Mono.just(new PageRequestDTO());
+        }
+        return Mono.fromCallable(() -> {
+            if (pageRequest.getFields() != null) {
+                pageRequest.setFields(ResourceFields.parse(String.join(",", pageRequest.getFields())));
+            }
+            return pageRequest;
+        });
+    }
+}
@@ -1,17 +1,49 @@
 package com.santiagoposada.libraryreactive.routes;
 
+import com.santiagoposada.libraryreactive.dto.AvailabilityEventDTO;
+import com.santiagoposada.libraryreactive.dto.BulkResultDTO;
+import com.santiagoposada.libraryreactive.dto.ImportFormat;
+import com.santiagoposada.libraryreactive.dto.PageRequestDTO;
 import com.santiagoposada.libraryreactive.dto.ResourceDTO;
+import com.santiagoposada.libraryreactive.dto.ResourcePageDTO;
+import com.santiagoposada.libraryreactive.dto.ResourceQueryDTO;
+import com.santiagoposada.libraryreactive.dto.StatsDTO;
 import com.santiagoposada.libraryreactive.usecase.ReturnUseCase;
 import com.santiagoposada.libraryreactive.usecase.*;
+import com.santiagoposada.libraryreactive.utils.HttpException;
+import com.santiagoposada.libraryreactive.utils.HttpExceptionBuilder;
+import com.santiagoposada.libraryreactive.utils.PageCursor;
+import com.santiagoposada.libraryreactive.utils.ResourceFields;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.springframework.web.reactive.function.server.RequestPredicates.*;
 import static org.springframework.web.reactive.function.server.RouterFunctions.route;
@@ -20,48 +52,66 @@ import static org.springframework.web.reactive.function.server.RouterFunctions.r
 @Configuration
 public class ResourceRouter {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final MediaType IMPORT_CSV = MediaType.parseMediaType("text/csv");
+    public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
+    private static final ParameterizedTypeReference<List<ResourceDTO>> RESOURCE_LIST =
+            new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<ServerSentEvent<ResourceDTO>> SERVER_SENT_RESOURCE =
+            new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<ServerSentEvent<AvailabilityEventDTO>> SERVER_SENT_AVAILABILITY =
+            new ParameterizedTypeReference<>() {};
+    private static final Duration HEARTBEAT = Duration.ofSeconds(15);
+
     @Bean
     public RouterFunction<ServerResponse> createResourceRoute(CreateResourceUseCase createResourceUseCase){
-        Function<ResourceDTO, Mono<ServerResponse>> executor =
-                resourceDTO -> createResourceUseCase.apply(resourceDTO)
-                        .flatMap(result-> ServerResponse.ok()
-                                .contentType(MediaType.APPLICATION_JSON)
-                                .bodyValue(result));
-
         return route(POST("/create")
-                        .and(accept(MediaType.APPLICATION_JSON)),
-                request -> request.bodyToMono(ResourceDTO.class).flatMap(executor));
+                        .and(accept(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR)),
+                request -> request.bodyToMono(ResourceDTO.class)
+                        .flatMap(createResourceUseCase::apply)
+                        .flatMap(result -> ServerResponse.ok()
+                                .contentType(negotiated(request))
+                                .bodyValue(result)));
     }
 
     @Bean
     public RouterFunction<ServerResponse> getAllRouter(GetAllUseCase getAllUseCase){
         return route(GET("/resources"),
-                request -> ServerResponse.ok()
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .body(BodyInserters.fromPublisher(getAllUseCase.get(), ResourceDTO.class)));
+                request -> listResponse(request, getAllUseCase, getAllUseCase::stream));
     }
 
     @Bean
     public RouterFunction<ServerResponse> getResourceById(GetResourceByIdUseCase getResourceById){
         //.and(accept(MediaType.APPLICATION_JSON))
         return route(GET("/resource/{id}"),
-                request -> ServerResponse.ok()
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .body(BodyInserters.fromPublisher(getResourceById.apply(request.pathVariable("id")), ResourceDTO.class)));
+                request -> Mono.fromCallable(() -> Optional.ofNullable(
+                                ResourceFields.parse(request.queryParam("fields").orElse(null))))
+                        .flatMap(fields -> {
+                            MediaType contentType = negotiated(request);
+                            String id = request.pathVariable("id");
+                            // Full JSON responses are served from the encoded bytes, written as they are
+                            if (fields.isEmpty() && MediaType.APPLICATION_JSON.equals(contentType)) {
+                                return ServerResponse.ok()
+                                        .contentType(contentType)
+                                        .body(BodyInserters.fromPublisher(getResourceById.json(id), byte[].class));
+                            }
+                            return ServerResponse.ok()
+                                    .contentType(contentType)
+                                    .body(BodyInserters.fromPublisher(
+                                            getResourceById.apply(id, fields.orElse(null)), ResourceDTO.class));
+                        }));
     }
 
     @Bean
     public RouterFunction<ServerResponse> updateResourceRoute(UpdateUseCase updateUseCase){
-        Function<ResourceDTO, Mono<ServerResponse>> executor =
-                resourceDTO -> updateUseCase.apply(resourceDTO)
-                        .flatMap(result -> ServerResponse.ok()
-                                .contentType(MediaType.APPLICATION_JSON)
-                                .bodyValue(result));
-
         return route(PUT("/update")
-                .and(accept(MediaType.APPLICATION_JSON)), request -> request
+                .and(accept(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR)), request -> request
                 .bodyToMono(ResourceDTO.class)
-                .flatMap(executor));
+                .flatMap(updateUseCase::apply)
+                .flatMap(result -> ServerResponse.ok()
+                        .contentType(negotiated(request))
+                        .bodyValue(result)));
     }
 
     @Bean
@@ -74,6 +124,26 @@ public class ResourceRouter {
                         .body(BodyInserters.fromPublisher(deleteResourceUseCase.apply(request.pathVariable("id")), Void.class)));
     }
 
+    /**
+     * Ordered ahead of /availability/{id}, which would otherwise take "stream" for an id.
+     */
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public RouterFunction<ServerResponse> availabilityStreamRoute(WatchAvailabilityUseCase watchAvailabilityUseCase){
+        return route(GET("/availability/stream"),
+                request -> {
+                    Flux<ServerSentEvent<AvailabilityEventDTO>> events = watchAvailabilityUseCase.apply(ids(request))
+                            .map(event -> ServerSentEvent.builder(event).event("availability").id(event.getId()).build());
+                    // Comments keep idle connections from being dropped by proxies between changes
+                    Flux<ServerSentEvent<AvailabilityEventDTO>> heartbeats = Flux.interval(HEARTBEAT)
+                            .map(tick -> ServerSentEvent.<AvailabilityEventDTO>builder().comment("heartbeat").build());
+                    return ServerResponse.ok()
+                            .contentType(MediaType.TEXT_EVENT_STREAM)
+                            .body(events.publish(shared -> Flux.merge(shared,
+                                    heartbeats.takeUntilOther(shared.then(Mono.just(true))))), SERVER_SENT_AVAILABILITY);
+                });
+    }
+
     @Bean
     public RouterFunction<ServerResponse> checkForAvailabilityRoute(CheckAvailabilityUseCase checkAvailabilityUseCase){
         //.and(accept(MediaType.APPLICATION_JSON))
@@ -87,18 +157,18 @@ public class ResourceRouter {
     public RouterFunction<ServerResponse> getByTypeRoute(GetByTypeUseCase getByTypeUseCase){
         //.and(accept(MediaType.APPLICATION_JSON))
         return route(GET("/getByType/{type}"),
-                request -> ServerResponse.ok()
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .body(BodyInserters.fromPublisher(getByTypeUseCase.apply(request.pathVariable("type")), ResourceDTO.class)));
+                request -> listResponse(request,
+                        pageRequest -> getByTypeUseCase.apply(request.pathVariable("type"), pageRequest),
+                        pageRequest -> getByTypeUseCase.stream(request.pathVariable("type"), pageRequest)));
     }
 
     @Bean
     public RouterFunction<ServerResponse> getByCategory(GetByCategoryUseCase getByCategoryUseCase){
         //.and(accept(MediaType.APPLICATION_JSON))
         return route(GET("/getByCategory/{category}"),
-                request -> ServerResponse.ok()
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .body(BodyInserters.fromPublisher(getByCategoryUseCase.apply(request.pathVariable("category")), ResourceDTO.class)));
+                request -> listResponse(request,
+                        pageRequest -> getByCategoryUseCase.apply(request.pathVariable("category"), pageRequest),
+                        pageRequest -> getByCategoryUseCase.stream(request.pathVariable("category"), pageRequest)));
     }
 
     @Bean
@@ -118,4 +188,229 @@ public class ResourceRouter {
                         .contentType(MediaType.APPLICATION_JSON)
                         .body(BodyInserters.fromPublisher(returnUseCase.apply(request.pathVariable("id")), String.class)));
     }
+
+    @Bean
+    public RouterFunction<ServerResponse> bulkBorrowRoute(BulkBorrowUseCase bulkBorrowUseCase){
+        return route(
+                PUT("/borrow").and(accept(MediaType.APPLICATION_JSON)),
+                request -> request.bodyToMono(new ParameterizedTypeReference<List<String>>() {})
+                        .flatMap(ids -> ServerResponse.ok()
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .body(BodyInserters.fromPublisher(bulkBorrowUseCase.apply(ids), BulkResultDTO.class))));
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> bulkReturnRoute(BulkReturnUseCase bulkReturnUseCase){
+        return route(
+                PUT("/return").and(accept(MediaType.APPLICATION_JSON)),
+                request -> request.bodyToMono(new ParameterizedTypeReference<List<String>>() {})
+                        .flatMap(ids -> ServerResponse.ok()
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .body(BodyInserters.fromPublisher(bulkReturnUseCase.apply(ids), BulkResultDTO.class))));
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> promoteResourceRoute(PromoteResourceUseCase promoteResourceUseCase){
+        return route(
+                PUT("/shards/{id}"),
+                request -> Mono.fromCallable(() -> request.queryParam("count").map(Integer::valueOf))
+                        .onErrorMap(NumberFormatException.class, error -> new HttpExceptionBuilder()
+                                .statusCode(HttpStatus.BAD_REQUEST)
+                                .developerMessage("The count must be a number")
+                                .build())
+                        .flatMap(count -> ServerResponse.ok()
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .body(BodyInserters.fromPublisher(promoteResourceUseCase.apply(
+                                        request.pathVariable("id"), count.orElse(null)), String.class))));
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> demoteResourceRoute(DemoteResourceUseCase demoteResourceUseCase){
+        return route(
+                DELETE("/shards/{id}"),
+                request -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(BodyInserters.fromPublisher(demoteResourceUseCase.apply(request.pathVariable("id")), String.class)));
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> queryRoute(QueryResourcesUseCase queryResourcesUseCase){
+        return route(GET("/query"),
+                request -> resourceQuery(request)
+                        .flatMap(query -> listResponse(request,
+                                pageRequest -> queryResourcesUseCase.apply(query, pageRequest),
+                                pageRequest -> queryResourcesUseCase.stream(query, pageRequest))));
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> importRoute(ImportResourcesUseCase importResourcesUseCase){
+        // Lines are decoded as the upload arrives instead of reading the whole body first
+        StringDecoder lineDecoder = StringDecoder.allMimeTypes(List.of("\n"), true);
+        return route(POST("/import"),
+                request -> {
+                    MediaType contentType = request.headers().contentType().orElse(MediaType.APPLICATION_NDJSON);
+                    ImportFormat format = IMPORT_CSV.isCompatibleWith(contentType) ? ImportFormat.CSV
+                            : MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType) ? ImportFormat.NDJSON
+                            : null;
+                    if (format == null) {
+                        return ServerResponse.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
+                                .bodyValue("Imports are read as " + MediaType.APPLICATION_NDJSON + " or " + IMPORT_CSV);
+                    }
+                    Flux<String> lines = lineDecoder.decode(request.bodyToFlux(DataBuffer.class),
+                            ResolvableType.forClass(String.class), contentType, Map.of());
+                    return importResourcesUseCase.apply(lines, format)
+                            .flatMap(summary -> ServerResponse.ok()
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .bodyValue(summary));
+                });
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> getStatsRoute(GetStatsUseCase getStatsUseCase){
+        return route(GET("/stats"),
+                request -> getStatsUseCase.apply(request.queryParam("groupBy")
+                                .map(groupBy -> Arrays.stream(groupBy.split(",")).map(String::trim).collect(Collectors.toList()))
+                                .orElse(List.of()))
+                        .flatMap(stats -> ServerResponse.ok()
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .bodyValue(stats)));
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> getRollupRoute(GetRollupUseCase getRollupUseCase){
+        return route(GET("/rollup/{dimension}"),
+                request -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(BodyInserters.fromPublisher(getRollupUseCase.apply(request.pathVariable("dimension"), null), StatsDTO.class)))
+                .andRoute(GET("/rollup/{dimension}/{key}"),
+                        request -> getRollupUseCase.apply(request.pathVariable("dimension"), request.pathVariable("key"))
+                                .next()
+                                .flatMap(rollup -> ServerResponse.ok()
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .bodyValue(rollup))
+                                .switchIfEmpty(ServerResponse.notFound().build()));
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> rebuildRollupRoute(RebuildRollupUseCase rebuildRollupUseCase){
+        return route(POST("/rollup/rebuild"),
+                request -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(BodyInserters.fromPublisher(rebuildRollupUseCase.get(), String.class)));
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> searchRoute(SearchResourcesUseCase searchResourcesUseCase){
+        return route(GET("/search"),
+                request -> Mono.fromCallable(() -> request.queryParam("limit").map(Integer::valueOf))
+                        .onErrorMap(NumberFormatException.class, error -> new HttpExceptionBuilder()
+                                .statusCode(HttpStatus.BAD_REQUEST)
+                                .developerMessage("The limit must be a number")
+                                .build())
+                        .flatMap(limit -> ServerResponse.ok()
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .body(BodyInserters.fromPublisher(searchResourcesUseCase.apply(
+                                        request.queryParam("q").orElse(null), limit.orElse(null)), ResourceDTO.class))));
+    }
+
+    private Mono<PageRequestDTO> pageRequest(ServerRequest request) {
+        // An EventSource reconnecting sends the id of the last event it got, which is the cursor to resume from
+        String after = request.queryParam("after")
+                .orElseGet(() -> request.headers().firstHeader(LAST_EVENT_ID_HEADER));
+        try {
+            Integer limit = request.queryParam("limit").map(Integer::valueOf).orElse(null);
+            Set<String> fields = ResourceFields.parse(request.queryParam("fields").orElse(null));
+            return Mono.just(new PageRequestDTO(after, limit, fields));
+        } catch (HttpException e) {
+            return Mono.error(e);
+        } catch (NumberFormatException e) {
+            return Mono.error(new HttpExceptionBuilder()
+                    .statusCode(HttpStatus.BAD_REQUEST)
+                    .developerMessage("The limit must be a number")
+                    .build());
+        }
+    }
+
+    private static Set<String> ids(ServerRequest request) {
+        return request.queryParams().getOrDefault("ids", List.of()).stream()
+                .flatMap(ids -> Arrays.stream(ids.split(",")))
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private Mono<ResourceQueryDTO> resourceQuery(ServerRequest request) {
+        return Mono.fromCallable(() -> new ResourceQueryDTO(
+                        request.queryParam("type").orElse(null),
+                        request.queryParam("category").orElse(null),
+                        request.queryParam("minAvailable").map(Integer::valueOf).orElse(null),
+                        request.queryParam("borrowedFrom").map(LocalDate::parse).orElse(null),
+                        request.queryParam("borrowedTo").map(LocalDate::parse).orElse(null)))
+                .onErrorMap(error -> error instanceof NumberFormatException || error instanceof DateTimeParseException,
+                        error -> new HttpExceptionBuilder()
+                                .statusCode(HttpStatus.BAD_REQUEST)
+                                .developerMessage("minAvailable must be a number and borrowedFrom/borrowedTo ISO dates")
+                                .build());
+    }
+
+    /**
+     * Answers a list endpoint as one page, or as the whole result streamed when the client accepts NDJSON or
+     * server-sent events. Only an explicit Accept streams: a wildcard still gets the paged JSON array.
+     */
+    private Mono<ServerResponse> listResponse(ServerRequest request,
+                                              Function<PageRequestDTO, Mono<ResourcePageDTO>> page,
+                                              Function<PageRequestDTO, Flux<ResourceDTO>> stream) {
+        List<MediaType> accept = request.headers().accept();
+        return pageRequest(request).flatMap(pageRequest -> {
+            if (accepts(accept, MediaType.APPLICATION_NDJSON)) {
+                return ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .body(stream.apply(pageRequest), ResourceDTO.class);
+            }
+            if (accepts(accept, MediaType.TEXT_EVENT_STREAM)) {
+                Flux<ServerSentEvent<ResourceDTO>> events = stream.apply(pageRequest)
+                        .map(resource -> ServerSentEvent.builder(resource)
+                                .id(PageCursor.encode(resource.getId()))
+                                .build());
+                return ServerResponse.ok()
+                        .contentType(MediaType.TEXT_EVENT_STREAM)
+                        .body(events, SERVER_SENT_RESOURCE);
+            }
+            MediaType contentType = negotiated(request);
+            return page.apply(pageRequest).flatMap(resources -> pageResponse(contentType, resources));
+        });
+    }
+
+    private static boolean accepts(List<MediaType> accept, MediaType mediaType) {
+        return accept.stream().anyMatch(mediaType::equalsTypeAndSubtype);
+    }
+
+    /**
+     * CBOR when the client prefers it over JSON, JSON otherwise; for single resources and pages only.
+     */
+    private static MediaType negotiated(ServerRequest request) {
+        List<MediaType> accept = new ArrayList<>(request.headers().accept());
+        MediaType.sortBySpecificityAndQuality(accept);
+        for (MediaType mediaType : accept) {
+            if (MediaType.APPLICATION_CBOR.equalsTypeAndSubtype(mediaType)) {
+                return MediaType.APPLICATION_CBOR;
+            }
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return MediaType.APPLICATION_JSON;
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    /**
+     * Lists keep a plain JSON array as body; the cursor of the next page, when there is one, goes in a header.
+     */
+    private Mono<ServerResponse> pageResponse(MediaType contentType, ResourcePageDTO page) {
+        ServerResponse.BodyBuilder response = ServerResponse.ok().contentType(contentType);
+        if (page.getNext() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNext());
+        }
+        // Typed, so the list reaches the encoder as List<ResourceDTO> and not as a raw ArrayList
+        return response.body(Mono.just(page.getResources()), RESOURCE_LIST);
+    }
 }
@@ -7,8 +7,14 @@ import java.util.function.Function;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 
-import com.santiagoposada.libraryreactive.mapper.ResourceMapper;
+import com.santiagoposada.libraryreactive.entity.Resource;
+import com.santiagoposada.libraryreactive.repository.AvailabilityFeed;
+import com.santiagoposada.libraryreactive.repository.BatchingResourceLoader;
+import com.santiagoposada.libraryreactive.repository.ResourceCache;
 import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.repository.RollupCounters;
+import com.santiagoposada.libraryreactive.repository.ShardedCounters;
+import com.santiagoposada.libraryreactive.repository.WriteBehindCounters;
 import com.santiagoposada.libraryreactive.utils.ResourceNotFoundException;
 
 import reactor.core.publisher.Mono;
@@ -16,14 +22,27 @@ import reactor.core.publisher.Mono;
 @Service
 @Validated
 public class BorrowResourceUseCase implements Function<String, Mono<String>> {
-    private ResourceMapper resourceMapper;
+    private static final String NO_UNITS_LEFT = "There arent units left to be borrow of that resource";
+
     private ResourceRepository resourceRepository;
-    private UpdateUseCase updateUseCase;
+    private WriteBehindCounters writeBehindCounters;
+    private ShardedCounters shardedCounters;
+    private ResourceCache resourceCache;
+    private BatchingResourceLoader resourceLoader;
+    private RollupCounters rollupCounters;
+    private AvailabilityFeed availabilityFeed;
 
-    public BorrowResourceUseCase(ResourceMapper resourceMapper, ResourceRepository resourceRepository, UpdateUseCase updateUseCase){
-        this.resourceMapper = resourceMapper;
+    public BorrowResourceUseCase(ResourceRepository resourceRepository, WriteBehindCounters writeBehindCounters,
+                                 ShardedCounters shardedCounters, ResourceCache resourceCache,
+                                 BatchingResourceLoader resourceLoader, RollupCounters rollupCounters,
+                                 AvailabilityFeed availabilityFeed){
         this.resourceRepository = resourceRepository;
-        this.updateUseCase = updateUseCase;
+        this.writeBehindCounters = writeBehindCounters;
+        this.shardedCounters = shardedCounters;
+        this.resourceCache = resourceCache;
+        this.resourceLoader = resourceLoader;
+        this.rollupCounters = rollupCounters;
+        this.availabilityFeed = availabilityFeed;
     }
 
     @Override
@@ -32,19 +51,45 @@ public class BorrowResourceUseCase implements Function<String, Mono<String>> {
         if (id == null) {
             return Mono.error(new ResourceNotFoundException("Id is required to borrow a book"));
         }
-        return resourceRepository.findById(id).flatMap(
-                resource->{
-                    if(resource.getUnitsAvailable() > 0){
-                        resource.setUnitsOwed(resource.getUnitsOwed() + 1);
-                        resource.setUnitsAvailable(resource.getUnitsAvailable() - 1);
-                        resource.setLastBorrow(LocalDate.now());
-                        return updateUseCase.apply(resourceMapper.fromResourceEntityToDTO().apply(resource))
-                                .thenReturn("The resource "
-                                        + resource.getName() + " has been borrowed, there are "
-                                        + resource.getUnitsAvailable() + " units available");
-                    }
-                    return Mono.just("There arent units left to be borrow of that resource");
-                }
-        );
+        LocalDate borrowDate = LocalDate.now();
+        Mono<Resource> updated = shardedCounters.isSharded(id)
+                ? shardedCounters.borrowUnit(id, borrowDate)
+                        // A miss that dropped the hint means the resource was demoted elsewhere: use its document
+                        .switchIfEmpty(Mono.defer(() -> shardedCounters.isSharded(id) ? Mono.empty()
+                                : borrowFromDocument(id, borrowDate)))
+                : borrowFromDocument(id, borrowDate);
+        return updated
+                .doOnNext(this::recordBorrow)
+                .map(this::borrowedMessage)
+                .switchIfEmpty(Mono.defer(() -> notBorrowed(id, borrowDate)));
+    }
+
+    private Mono<Resource> borrowFromDocument(String id, LocalDate borrowDate) {
+        return writeBehindCounters.isEnabled() ? writeBehindCounters.borrowUnit(id, borrowDate)
+                : resourceRepository.borrowUnit(id, borrowDate).doOnNext(resourceCache::put);
+    }
+
+    /**
+     * Only reached when the conditional update matched nothing: tell "no units left" apart from "no such id",
+     * and catch resources another instance split across shards.
+     */
+    private Mono<String> notBorrowed(String id, LocalDate borrowDate) {
+        if (shardedCounters.isSharded(id) || writeBehindCounters.isTracked(id)) {
+            return Mono.just(NO_UNITS_LEFT);
+        }
+        return resourceLoader.findById(id).flatMap(resource -> resource.getShards() == null
+                ? Mono.just(NO_UNITS_LEFT)
+                : shardedCounters.borrowUnit(resource, borrowDate).doOnNext(this::recordBorrow).map(this::borrowedMessage).defaultIfEmpty(NO_UNITS_LEFT));
+    }
+
+    private String borrowedMessage(Resource resource) {
+        return "The resource "
+                + resource.getName() + " has been borrowed, there are "
+                + resource.getUnitsAvailable() + " units available";
+    }
+
+    private void recordBorrow(Resource resource) {
+        rollupCounters.unitsChanged(resource, -1, 1);
+        availabilityFeed.changed(resource);
     }
 }
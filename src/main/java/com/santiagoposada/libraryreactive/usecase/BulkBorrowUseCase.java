@@ -0,0 +1,98 @@
+package com.santiagoposada.libraryreactive.usecase;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.validation.annotation.Validated;
+
+import com.santiagoposada.libraryreactive.dto.BulkResultDTO;
+import com.santiagoposada.libraryreactive.dto.BulkStatus;
+import com.santiagoposada.libraryreactive.repository.AvailabilityFeed;
+import com.santiagoposada.libraryreactive.repository.ResourceCache;
+import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.repository.RollupCounters;
+import com.santiagoposada.libraryreactive.repository.ShardedCounters;
+import com.santiagoposada.libraryreactive.repository.WriteBehindCounters;
+import com.santiagoposada.libraryreactive.utils.HttpExceptionBuilder;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+@Validated
+public class BulkBorrowUseCase implements Function<List<String>, Flux<BulkResultDTO>> {
+    private ResourceRepository resourceRepository;
+    private WriteBehindCounters writeBehindCounters;
+    private ShardedCounters shardedCounters;
+    private ResourceCache resourceCache;
+    private RollupCounters rollupCounters;
+    private AvailabilityFeed availabilityFeed;
+    private int maxIds;
+
+    public BulkBorrowUseCase(ResourceRepository resourceRepository, WriteBehindCounters writeBehindCounters,
+                             ShardedCounters shardedCounters, ResourceCache resourceCache,
+                             RollupCounters rollupCounters, AvailabilityFeed availabilityFeed,
+                             @Value("${library.bulk.max-ids:100}") int maxIds) {
+        this.resourceRepository = resourceRepository;
+        this.writeBehindCounters = writeBehindCounters;
+        this.shardedCounters = shardedCounters;
+        this.resourceCache = resourceCache;
+        this.rollupCounters = rollupCounters;
+        this.availabilityFeed = availabilityFeed;
+        this.maxIds = maxIds;
+    }
+
+    @Override
+    public Flux<BulkResultDTO> apply(List<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Flux.empty();
+        }
+        if (ids.size() > maxIds) {
+            return Flux.error(new HttpExceptionBuilder()
+                    .statusCode(HttpStatus.BAD_REQUEST)
+                    .developerMessage("At most " + maxIds + " ids can be borrowed at once")
+                    .build());
+        }
+        LocalDate borrowDate = LocalDate.now();
+        // The bulk update goes straight to Mongo, so write-behind counters for these ids must not outlive it
+        return Flux.fromIterable(new LinkedHashSet<>(ids))
+                .flatMap(writeBehindCounters::release)
+                .then(resourceRepository.borrowUnits(ids, borrowDate))
+                .flatMapIterable(borrowed -> results(ids, borrowed))
+                .doOnNext(result -> {
+                    resourceCache.invalidate(result.getId());
+                    if (result.getStatus() == BulkStatus.BORROWED) {
+                        rollupCounters.unitsChanged(result.getId(), -1, 1);
+                    }
+                })
+                // Sharded resources keep no units on their own document, take them from the shards instead
+                .concatMap(result -> result.getStatus() == BulkStatus.UNAVAILABLE && shardedCounters.isSharded(result.getId())
+                        ? shardedCounters.borrowUnit(result.getId(), borrowDate)
+                                .doOnNext(resource -> rollupCounters.unitsChanged(resource, -1, 1))
+                                .map(resource -> new BulkResultDTO(result.getId(), BulkStatus.BORROWED))
+                                .defaultIfEmpty(result)
+                        : Mono.just(result))
+                .concatMap(result -> result.getStatus() == BulkStatus.BORROWED
+                        ? availabilityFeed.changed(result.getId()).thenReturn(result)
+                        : Mono.just(result));
+    }
+
+    /**
+     * One result per requested id, in request order: a repeated id is borrowed as many times as it got units.
+     */
+    private static List<BulkResultDTO> results(List<String> ids, Map<String, Integer> borrowed) {
+        Map<String, Integer> left = new HashMap<>(borrowed);
+        return ids.stream()
+                .map(id -> new BulkResultDTO(id, !left.containsKey(id) ? BulkStatus.NOT_FOUND
+                        : left.merge(id, -1, Integer::sum) >= 0 ? BulkStatus.BORROWED : BulkStatus.UNAVAILABLE))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,96 @@
+package com.santiagoposada.libraryreactive.usecase;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.validation.annotation.Validated;
+
+import com.santiagoposada.libraryreactive.dto.BulkResultDTO;
+import com.santiagoposada.libraryreactive.dto.BulkStatus;
+import com.santiagoposada.libraryreactive.repository.AvailabilityFeed;
+import com.santiagoposada.libraryreactive.repository.ResourceCache;
+import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.repository.RollupCounters;
+import com.santiagoposada.libraryreactive.repository.ShardedCounters;
+import com.santiagoposada.libraryreactive.repository.WriteBehindCounters;
+import com.santiagoposada.libraryreactive.utils.HttpExceptionBuilder;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+@Validated
+public class BulkReturnUseCase implements Function<List<String>, Flux<BulkResultDTO>> {
+    private ResourceRepository resourceRepository;
+    private WriteBehindCounters writeBehindCounters;
+    private ShardedCounters shardedCounters;
+    private ResourceCache resourceCache;
+    private RollupCounters rollupCounters;
+    private AvailabilityFeed availabilityFeed;
+    private int maxIds;
+
+    public BulkReturnUseCase(ResourceRepository resourceRepository, WriteBehindCounters writeBehindCounters,
+                             ShardedCounters shardedCounters, ResourceCache resourceCache,
+                             RollupCounters rollupCounters, AvailabilityFeed availabilityFeed,
+                             @Value("${library.bulk.max-ids:100}") int maxIds) {
+        this.resourceRepository = resourceRepository;
+        this.writeBehindCounters = writeBehindCounters;
+        this.shardedCounters = shardedCounters;
+        this.resourceCache = resourceCache;
+        this.rollupCounters = rollupCounters;
+        this.availabilityFeed = availabilityFeed;
+        this.maxIds = maxIds;
+    }
+
+    @Override
+    public Flux<BulkResultDTO> apply(List<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Flux.empty();
+        }
+        if (ids.size() > maxIds) {
+            return Flux.error(new HttpExceptionBuilder()
+                    .statusCode(HttpStatus.BAD_REQUEST)
+                    .developerMessage("At most " + maxIds + " ids can be returned at once")
+                    .build());
+        }
+        // The bulk update goes straight to Mongo, so write-behind counters for these ids must not outlive it
+        return Flux.fromIterable(new LinkedHashSet<>(ids))
+                .flatMap(writeBehindCounters::release)
+                .then(resourceRepository.returnUnits(ids))
+                .flatMapIterable(returned -> results(ids, returned))
+                .doOnNext(result -> {
+                    resourceCache.invalidate(result.getId());
+                    if (result.getStatus() == BulkStatus.RETURNED) {
+                        rollupCounters.unitsChanged(result.getId(), 1, -1);
+                    }
+                })
+                // Sharded resources keep no units on their own document, take them from the shards instead
+                .concatMap(result -> result.getStatus() == BulkStatus.NOT_OWED && shardedCounters.isSharded(result.getId())
+                        ? shardedCounters.returnUnit(result.getId())
+                                .doOnNext(resource -> rollupCounters.unitsChanged(resource, 1, -1))
+                                .map(resource -> new BulkResultDTO(result.getId(), BulkStatus.RETURNED))
+                                .defaultIfEmpty(result)
+                        : Mono.just(result))
+                .concatMap(result -> result.getStatus() == BulkStatus.RETURNED
+                        ? availabilityFeed.changed(result.getId()).thenReturn(result)
+                        : Mono.just(result));
+    }
+
+    /**
+     * One result per requested id, in request order: a repeated id is returned as many times as it had units owed.
+     */
+    private static List<BulkResultDTO> results(List<String> ids, Map<String, Integer> returned) {
+        Map<String, Integer> left = new HashMap<>(returned);
+        return ids.stream()
+                .map(id -> new BulkResultDTO(id, !left.containsKey(id) ? BulkStatus.NOT_FOUND
+                        : left.merge(id, -1, Integer::sum) >= 0 ? BulkStatus.RETURNED : BulkStatus.NOT_OWED))
+                .collect(Collectors.toList());
+    }
+}
@@ -5,7 +5,9 @@ import java.util.function.Function;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 
-import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.repository.ResourceCache;
+import com.santiagoposada.libraryreactive.repository.ShardedCounters;
+import com.santiagoposada.libraryreactive.repository.WriteBehindCounters;
 
 import reactor.core.publisher.Mono;
 
@@ -13,15 +15,23 @@ import reactor.core.publisher.Mono;
 @Validated
 public class CheckAvailabilityUseCase implements Function<String, Mono<String>> {
 
-    private ResourceRepository resourceRepository;
+    private WriteBehindCounters writeBehindCounters;
+    private ShardedCounters shardedCounters;
+    private ResourceCache resourceCache;
 
-    public CheckAvailabilityUseCase(ResourceRepository resourceRepository) {
-        this.resourceRepository = resourceRepository;
+    public CheckAvailabilityUseCase(WriteBehindCounters writeBehindCounters, ShardedCounters shardedCounters,
+                                    ResourceCache resourceCache) {
+        this.writeBehindCounters = writeBehindCounters;
+        this.shardedCounters = shardedCounters;
+        this.resourceCache = resourceCache;
     }
 
     @Override
     public Mono<String> apply(String id) {
-        return resourceRepository.findById(id).flatMap(
+        return resourceCache.findById(id)
+                .flatMap(shardedCounters::overlay)
+                .map(writeBehindCounters::overlay)
+                .flatMap(
                 resource -> {
                     if (resource.getUnitsAvailable() > 0) {
                         return Mono.just(resource.getName() + " is available");
@@ -3,7 +3,9 @@ package com.santiagoposada.libraryreactive.usecase;
 
 import com.santiagoposada.libraryreactive.dto.ResourceDTO;
 import com.santiagoposada.libraryreactive.mapper.ResourceMapper;
+import com.santiagoposada.libraryreactive.repository.ResourceNameIndex;
 import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.repository.RollupCounters;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 import reactor.core.publisher.Mono;
@@ -14,15 +16,22 @@ public class CreateResourceUseCase implements CreateResource{
 
     private ResourceMapper resourceMapper;
     private ResourceRepository resourceRepository;
+    private RollupCounters rollupCounters;
+    private ResourceNameIndex resourceNameIndex;
 
-    public CreateResourceUseCase(ResourceMapper resourceMapper, ResourceRepository resourceRepository){
+    public CreateResourceUseCase(ResourceMapper resourceMapper, ResourceRepository resourceRepository,
+                                 RollupCounters rollupCounters, ResourceNameIndex resourceNameIndex){
         this.resourceMapper = resourceMapper;
         this.resourceRepository = resourceRepository;
+        this.rollupCounters = rollupCounters;
+        this.resourceNameIndex = resourceNameIndex;
     }
 
     @Override
     public Mono<ResourceDTO> apply(ResourceDTO resourceDTO) {
         return resourceRepository.save(resourceMapper.fromResourceDTOtoEntity().apply(resourceDTO))
-                .map(resource -> resourceMapper.fromResourceEntityToDTO().apply(resource));
+                .doOnNext(rollupCounters::added)
+                .doOnNext(resourceNameIndex::put)
+                .map(resourceMapper.fromResourceEntityToDTO());
     }
 }
@@ -6,7 +6,12 @@ import java.util.function.Function;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 
+import com.santiagoposada.libraryreactive.repository.ResourceCache;
+import com.santiagoposada.libraryreactive.repository.ResourceNameIndex;
 import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.repository.RollupCounters;
+import com.santiagoposada.libraryreactive.repository.ShardedCounters;
+import com.santiagoposada.libraryreactive.repository.WriteBehindCounters;
 
 import reactor.core.publisher.Mono;
 
@@ -14,13 +19,35 @@ import reactor.core.publisher.Mono;
 @Validated
 public class DeleteResourceUseCase implements Function<String, Mono<Void>> {
     private ResourceRepository resourceRepository;
-
-    public DeleteResourceUseCase(ResourceRepository resourceRepository){
+    private WriteBehindCounters writeBehindCounters;
+    private ResourceCache resourceCache;
+    private ShardedCounters shardedCounters;
+    private RollupCounters rollupCounters;
+    private ResourceNameIndex resourceNameIndex;
+
+    public DeleteResourceUseCase(ResourceRepository resourceRepository, WriteBehindCounters writeBehindCounters,
+                                 ResourceCache resourceCache, ShardedCounters shardedCounters,
+                                 RollupCounters rollupCounters, ResourceNameIndex resourceNameIndex){
         this.resourceRepository = resourceRepository;
+        this.writeBehindCounters = writeBehindCounters;
+        this.resourceCache = resourceCache;
+        this.shardedCounters = shardedCounters;
+        this.rollupCounters = rollupCounters;
+        this.resourceNameIndex = resourceNameIndex;
     }
 
     @Override
     public Mono<Void> apply(String s) {
-        return resourceRepository.deleteById(s);
+        return writeBehindCounters.release(s)
+                .then(resourceRepository.removeById(s))
+                .doOnSuccess(deleted -> {
+                    resourceCache.invalidate(s);
+                    resourceNameIndex.remove(s);
+                })
+                // The units of a split resource are in its shards: total them before the shards go too
+                .flatMap(shardedCounters::overlay)
+                .flatMap(removed -> shardedCounters.removed(removed).thenReturn(removed))
+                .doOnNext(rollupCounters::removed)
+                .then();
     }
 }
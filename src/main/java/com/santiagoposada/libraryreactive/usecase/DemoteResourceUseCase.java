@@ -0,0 +1,42 @@
+package com.santiagoposada.libraryreactive.usecase;
+
+import java.util.function.Function;
+
+import org.springframework.stereotype.Service;
+import org.springframework.validation.annotation.Validated;
+
+import com.santiagoposada.libraryreactive.repository.ResourceCache;
+import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.repository.ShardedCounters;
+import com.santiagoposada.libraryreactive.utils.ResourceNotFoundException;
+
+import reactor.core.publisher.Mono;
+
+@Service
+@Validated
+public class DemoteResourceUseCase implements Function<String, Mono<String>> {
+    private ResourceRepository resourceRepository;
+    private ShardedCounters shardedCounters;
+    private ResourceCache resourceCache;
+
+    public DemoteResourceUseCase(ResourceRepository resourceRepository, ShardedCounters shardedCounters,
+                                 ResourceCache resourceCache) {
+        this.resourceRepository = resourceRepository;
+        this.shardedCounters = shardedCounters;
+        this.resourceCache = resourceCache;
+    }
+
+    @Override
+    public Mono<String> apply(String id) {
+        if (id == null) {
+            return Mono.error(new ResourceNotFoundException("Id is required to merge a resource"));
+        }
+        return shardedCounters.demote(id)
+                .doOnNext(resource -> resourceCache.invalidate(id))
+                .map(resource -> "The resource " + resource.getName() + " is no longer split, there are "
+                        + resource.getUnitsAvailable() + " units available")
+                .switchIfEmpty(Mono.defer(() -> resourceRepository.existsById(id)
+                        .filter(exists -> exists)
+                        .map(exists -> "The resource with id: " + id + " is not split across shards")));
+    }
+}
@@ -1,31 +1,34 @@
 package com.santiagoposada.libraryreactive.usecase;
 
 
+import com.santiagoposada.libraryreactive.dto.PageRequestDTO;
 import com.santiagoposada.libraryreactive.dto.ResourceDTO;
-import com.santiagoposada.libraryreactive.mapper.ResourceMapper;
-import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.dto.ResourcePageDTO;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.util.function.Supplier;
+import java.util.function.Function;
 
 @Service
 @Validated
-public class GetAllUseCase implements Supplier<Flux<ResourceDTO>> {
+public class GetAllUseCase implements Function<PageRequestDTO, Mono<ResourcePageDTO>> {
 
-    private ResourceMapper resourceMapper;
-    private ResourceRepository resourceRepository;
+    private ResourcePager resourcePager;
 
-    public GetAllUseCase(ResourceMapper resourceMapper, ResourceRepository resourceRepository){
-        this.resourceMapper = resourceMapper;
-        this.resourceRepository = resourceRepository;
+    public GetAllUseCase(ResourcePager resourcePager){
+        this.resourcePager = resourcePager;
     }
 
 
     @Override
-    public Flux<ResourceDTO> get() {
-        return resourceRepository.findAll()
-                .map(resource->resourceMapper.fromResourceEntityToDTO().apply(resource));
+    public Mono<ResourcePageDTO> apply(PageRequestDTO pageRequest) {
+        return resourcePager.page(new Criteria(), pageRequest);
+    }
+
+    public Flux<ResourceDTO> stream(PageRequestDTO pageRequest) {
+        return resourcePager.stream(new Criteria(), pageRequest);
     }
 }
@@ -1,30 +1,33 @@
 package com.santiagoposada.libraryreactive.usecase;
 
-import java.util.function.Function;
+import java.util.function.BiFunction;
 
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 
+import com.santiagoposada.libraryreactive.dto.PageRequestDTO;
 import com.santiagoposada.libraryreactive.dto.ResourceDTO;
-import com.santiagoposada.libraryreactive.mapper.ResourceMapper;
-import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.dto.ResourcePageDTO;
 
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @Service
 @Validated
-public class GetByCategoryUseCase  implements Function<String, Flux<ResourceDTO>> {
-    private ResourceMapper resourceMapper;
-    private ResourceRepository resourceRepository;
+public class GetByCategoryUseCase  implements BiFunction<String, PageRequestDTO, Mono<ResourcePageDTO>> {
+    private ResourcePager resourcePager;
 
-    public GetByCategoryUseCase(ResourceMapper resourceMapper, ResourceRepository resourceRepository){
-        this.resourceMapper = resourceMapper;
-        this.resourceRepository = resourceRepository;
+    public GetByCategoryUseCase(ResourcePager resourcePager){
+        this.resourcePager = resourcePager;
     }
 
     @Override
-    public Flux<ResourceDTO> apply(String category) {
-        return resourceRepository.findAllByCategory(category)
-                .map(resource -> resourceMapper.fromResourceEntityToDTO().apply(resource));
+    public Mono<ResourcePageDTO> apply(String category, PageRequestDTO pageRequest) {
+        return resourcePager.page(Criteria.where("category").is(category), pageRequest);
+    }
+
+    public Flux<ResourceDTO> stream(String category, PageRequestDTO pageRequest) {
+        return resourcePager.stream(Criteria.where("category").is(category), pageRequest);
     }
 }
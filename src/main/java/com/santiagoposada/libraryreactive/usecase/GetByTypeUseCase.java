@@ -1,29 +1,32 @@
 package com.santiagoposada.libraryreactive.usecase;
 
 
+import com.santiagoposada.libraryreactive.dto.PageRequestDTO;
 import com.santiagoposada.libraryreactive.dto.ResourceDTO;
-import com.santiagoposada.libraryreactive.mapper.ResourceMapper;
-import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.dto.ResourcePageDTO;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.util.function.Function;
+import java.util.function.BiFunction;
 
 @Service
 @Validated
-public class GetByTypeUseCase implements Function<String, Flux<ResourceDTO>> {
+public class GetByTypeUseCase implements BiFunction<String, PageRequestDTO, Mono<ResourcePageDTO>> {
 
-    private ResourceMapper resourceMapper;
-    private ResourceRepository resourceRepository;
+    private ResourcePager resourcePager;
 
-    public GetByTypeUseCase(ResourceMapper resourceMapper, ResourceRepository resourceRepository){
-        this.resourceMapper = resourceMapper;
-        this.resourceRepository = resourceRepository;
+    public GetByTypeUseCase(ResourcePager resourcePager){
+        this.resourcePager = resourcePager;
     }
 
-    public Flux<ResourceDTO> apply(String type) {
-        return resourceRepository.findAllByType(type)
-                .map(resource -> resourceMapper.fromResourceEntityToDTO().apply(resource));
+    public Mono<ResourcePageDTO> apply(String type, PageRequestDTO pageRequest) {
+        return resourcePager.page(Criteria.where("type").is(type), pageRequest);
+    }
+
+    public Flux<ResourceDTO> stream(String type, PageRequestDTO pageRequest) {
+        return resourcePager.stream(Criteria.where("type").is(type), pageRequest);
     }
 }
@@ -2,37 +2,70 @@ package com.santiagoposada.libraryreactive.usecase;
 
 import com.santiagoposada.libraryreactive.dto.ResourceDTO;
 import com.santiagoposada.libraryreactive.mapper.ResourceMapper;
-import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.repository.ResourceCache;
+import com.santiagoposada.libraryreactive.repository.ResourceJsonCache;
+import com.santiagoposada.libraryreactive.repository.ShardedCounters;
+import com.santiagoposada.libraryreactive.repository.WriteBehindCounters;
 import com.santiagoposada.libraryreactive.utils.ResourceNotFoundException;
 
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 import reactor.core.publisher.Mono;
 
+import java.util.Set;
 import java.util.function.Function;
 
 @Service
 @Validated
 public class GetResourceByIdUseCase implements Function<String, Mono<ResourceDTO>> {
     private ResourceMapper resourceMapper;
-    private ResourceRepository resourceRepository;
+    private WriteBehindCounters writeBehindCounters;
+    private ShardedCounters shardedCounters;
+    private ResourceCache resourceCache;
+    private ResourceJsonCache resourceJsonCache;
 
-    public GetResourceByIdUseCase(ResourceMapper resourceMapper, ResourceRepository resourceRepository) {
+    public GetResourceByIdUseCase(ResourceMapper resourceMapper, WriteBehindCounters writeBehindCounters,
+                                  ShardedCounters shardedCounters, ResourceCache resourceCache,
+                                  ResourceJsonCache resourceJsonCache) {
         this.resourceMapper = resourceMapper;
-        this.resourceRepository = resourceRepository;
+        this.writeBehindCounters = writeBehindCounters;
+        this.shardedCounters = shardedCounters;
+        this.resourceCache = resourceCache;
+        this.resourceJsonCache = resourceJsonCache;
     }
 
     @Override
     public Mono<ResourceDTO> apply(String id) {
+        return apply(id, null);
+    }
+
+    /**
+     * Returns only the given fields of the resource, every field when {@code fields} is null.
+     */
+    public Mono<ResourceDTO> apply(String id, Set<String> fields) {
         // Objects.requireNonNull(id, "Id is required to get a resource");
         if (id == null) {
             return Mono.error(new ResourceNotFoundException("Id is required to get a resource"));
         }
-        return resourceRepository
+        return resourceCache
                 .findById(id)
-                .map(resource -> resourceMapper
-                        .fromResourceEntityToDTO()
-                        .apply(resource));
+                .flatMap(shardedCounters::overlay)
+                .map(writeBehindCounters::overlay)
+                .map(resourceMapper.fromResourceEntityToDTO(fields));
         // .switchIfEmpty(Mono.error(new ResourceNotFoundException("Resource not found with ID: " + id)));
     }
+
+    /**
+     * Returns the resource with every field already encoded as JSON, reusing the bytes while it is unchanged.
+     */
+    public Mono<byte[]> json(String id) {
+        if (id == null) {
+            return Mono.error(new ResourceNotFoundException("Id is required to get a resource"));
+        }
+        return resourceCache
+                .findById(id)
+                .flatMap(shardedCounters::overlay)
+                .map(writeBehindCounters::overlay)
+                .map(resourceJsonCache::json);
+    }
 }
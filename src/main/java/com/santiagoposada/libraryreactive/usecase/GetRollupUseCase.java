@@ -0,0 +1,43 @@
+package com.santiagoposada.libraryreactive.usecase;
+
+import com.santiagoposada.libraryreactive.dto.StatsDTO;
+import com.santiagoposada.libraryreactive.entity.AvailabilityRollup;
+import com.santiagoposada.libraryreactive.repository.RollupCounters;
+import com.santiagoposada.libraryreactive.utils.HttpExceptionBuilder;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.validation.annotation.Validated;
+import reactor.core.publisher.Flux;
+
+import java.util.function.BiFunction;
+
+@Service
+@Validated
+public class GetRollupUseCase implements BiFunction<String, String, Flux<StatsDTO>> {
+
+    private RollupCounters rollupCounters;
+
+    public GetRollupUseCase(RollupCounters rollupCounters) {
+        this.rollupCounters = rollupCounters;
+    }
+
+    /**
+     * Emits the rollup of one category or type, or every rollup of the dimension when the key is null.
+     */
+    @Override
+    public Flux<StatsDTO> apply(String dimension, String key) {
+        if (!RollupCounters.DIMENSIONS.contains(dimension)) {
+            return Flux.error(new HttpExceptionBuilder()
+                    .statusCode(HttpStatus.BAD_REQUEST)
+                    .developerMessage("Rollups are kept by " + RollupCounters.DIMENSIONS)
+                    .build());
+        }
+        Flux<AvailabilityRollup> rollups = key == null
+                ? rollupCounters.findAll(dimension)
+                : rollupCounters.find(dimension, key).flux();
+        return rollups.map(rollup -> new StatsDTO(
+                "category".equals(dimension) ? rollup.getKey() : null,
+                "type".equals(dimension) ? rollup.getKey() : null,
+                rollup.getResources(), rollup.getUnitsAvailable(), rollup.getUnitsOwed()));
+    }
+}
@@ -0,0 +1,53 @@
+package com.santiagoposada.libraryreactive.usecase;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.santiagoposada.libraryreactive.dto.StatsDTO;
+import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.utils.HttpExceptionBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.validation.annotation.Validated;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@Validated
+public class GetStatsUseCase implements Function<List<String>, Mono<List<StatsDTO>>> {
+
+    private static final Set<String> GROUP_FIELDS = Set.of("category", "type");
+
+    private ResourceRepository resourceRepository;
+    // Dashboards poll the same groupings; concurrent requests for one of them share a single aggregation
+    private AsyncCache<List<String>, List<StatsDTO>> stats;
+
+    public GetStatsUseCase(ResourceRepository resourceRepository,
+                           @Value("${library.stats.time-to-live:5s}") Duration timeToLive) {
+        this.resourceRepository = resourceRepository;
+        this.stats = Caffeine.newBuilder()
+                .maximumSize(GROUP_FIELDS.size() * 2L)
+                .expireAfterWrite(timeToLive)
+                .buildAsync();
+    }
+
+    @Override
+    public Mono<List<StatsDTO>> apply(List<String> groupBy) {
+        List<String> fields = groupBy == null || groupBy.isEmpty()
+                ? List.of("category")
+                : groupBy.stream().distinct().sorted().collect(Collectors.toList());
+        if (!GROUP_FIELDS.containsAll(fields)) {
+            return Mono.error(new HttpExceptionBuilder()
+                    .statusCode(HttpStatus.BAD_REQUEST)
+                    .developerMessage("Stats can only be grouped by " + GROUP_FIELDS)
+                    .build());
+        }
+        return Mono.fromFuture(() -> stats.get(fields,
+                (key, executor) -> resourceRepository.aggregateStats(key).collectList().toFuture()));
+    }
+}
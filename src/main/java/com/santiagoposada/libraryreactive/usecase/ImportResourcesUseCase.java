@@ -0,0 +1,229 @@
+package com.santiagoposada.libraryreactive.usecase;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.santiagoposada.libraryreactive.dto.ImportFormat;
+import com.santiagoposada.libraryreactive.dto.ImportSummaryDTO;
+import com.santiagoposada.libraryreactive.dto.ResourceDTO;
+import com.santiagoposada.libraryreactive.entity.Resource;
+import com.santiagoposada.libraryreactive.mapper.ResourceMapper;
+import com.santiagoposada.libraryreactive.repository.AvailabilityFeed;
+import com.santiagoposada.libraryreactive.repository.ImportResult;
+import com.santiagoposada.libraryreactive.repository.ResourceCache;
+import com.santiagoposada.libraryreactive.repository.ResourceNameIndex;
+import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.repository.RollupCounters;
+import com.santiagoposada.libraryreactive.repository.WriteBehindCounters;
+import com.santiagoposada.libraryreactive.utils.CsvLine;
+import com.santiagoposada.libraryreactive.utils.HttpExceptionBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.validation.annotation.Validated;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+@Service
+@Validated
+public class ImportResourcesUseCase implements BiFunction<Flux<String>, ImportFormat, Mono<ImportSummaryDTO>> {
+
+    private static final int MAX_ERRORS = 20;
+    private static final List<String> CSV_COLUMNS = List.of(
+            "id", "name", "category", "type", "lastBorrow", "unitsOwed", "unitsAvailable");
+
+    private ResourceMapper resourceMapper;
+    private ResourceRepository resourceRepository;
+    private WriteBehindCounters writeBehindCounters;
+    private ResourceCache resourceCache;
+    private RollupCounters rollupCounters;
+    private ResourceNameIndex resourceNameIndex;
+    private AvailabilityFeed availabilityFeed;
+    private ObjectMapper objectMapper;
+    private int batchSize;
+
+    public ImportResourcesUseCase(ResourceMapper resourceMapper, ResourceRepository resourceRepository,
+                                  WriteBehindCounters writeBehindCounters, ResourceCache resourceCache,
+                                  RollupCounters rollupCounters, ResourceNameIndex resourceNameIndex,
+                                  AvailabilityFeed availabilityFeed, ObjectMapper objectMapper,
+                                  @Value("${library.import.batch-size:500}") int batchSize) {
+        this.resourceMapper = resourceMapper;
+        this.resourceRepository = resourceRepository;
+        this.writeBehindCounters = writeBehindCounters;
+        this.resourceCache = resourceCache;
+        this.rollupCounters = rollupCounters;
+        this.resourceNameIndex = resourceNameIndex;
+        this.availabilityFeed = availabilityFeed;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Parses the lines as they arrive and writes them in batches, one batch at a time: the next lines are only
+     * requested once Mongo acknowledged the previous batch, so memory stays bounded whatever the upload size.
+     */
+    @Override
+    public Mono<ImportSummaryDTO> apply(Flux<String> lines, ImportFormat format) {
+        Flux<ImportRecord> records = lines
+                .index((index, line) -> new ImportRecord(index + 1, line.strip()))
+                .filter(record -> !record.line.isEmpty());
+        Flux<ImportRecord> parsed = format == ImportFormat.CSV
+                ? records.switchOnFirst((first, all) -> {
+                    if (!first.hasValue()) {
+                        return all;
+                    }
+                    List<String> header = csvHeader(first.get());
+                    return all.skip(1).map(record -> parseCsv(record, header));
+                })
+                : records.map(this::parseJson);
+
+        return parsed
+                .buffer(batchSize)
+                .concatMap(this::write, 1)
+                .reduce(new ImportSummaryDTO(0, 0, 0, new ArrayList<>()), (total, batch) -> {
+                    total.setInserted(total.getInserted() + batch.getInserted());
+                    total.setUpdated(total.getUpdated() + batch.getUpdated());
+                    total.setFailed(total.getFailed() + batch.getFailed());
+                    batch.getErrors().stream()
+                            .limit(MAX_ERRORS - total.getErrors().size())
+                            .forEach(total.getErrors()::add);
+                    return total;
+                });
+    }
+
+    private Mono<ImportSummaryDTO> write(List<ImportRecord> batch) {
+        List<String> errors = batch.stream()
+                .filter(record -> record.error != null)
+                .map(record -> "Line " + record.lineNumber + ": " + record.error)
+                .collect(Collectors.toList());
+        List<ImportRecord> valid = batch.stream()
+                .filter(record -> record.error == null)
+                .collect(Collectors.toList());
+        if (valid.isEmpty()) {
+            return Mono.just(new ImportSummaryDTO(0, 0, errors.size(), errors));
+        }
+        List<Resource> resources = valid.stream().map(record -> record.resource).collect(Collectors.toList());
+        List<String> existingIds = resources.stream()
+                .map(Resource::getId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return Flux.fromIterable(existingIds)
+                .flatMap(writeBehindCounters::release)
+                // What the imported documents replace, to move their totals between rollups
+                .thenMany(existingIds.isEmpty() ? Flux.<Resource>empty() : resourceRepository.findAllById(existingIds))
+                .collectMap(Resource::getId)
+                .flatMap(replaced -> resourceRepository.importResources(resources)
+                        .map(result -> {
+                            existingIds.forEach(resourceCache::invalidate);
+                            recordImported(valid, replaced, result);
+                            result.getFailures().forEach((index, error) ->
+                                    errors.add("Line " + valid.get(index).lineNumber + ": " + error));
+                            return new ImportSummaryDTO(result.getInserted(), result.getUpdated(), errors.size(),
+                                    errors);
+                        }));
+    }
+
+    private void recordImported(List<ImportRecord> valid, Map<String, Resource> replaced, ImportResult result) {
+        Map<Integer, String> failures = result.getFailures();
+        for (int i = 0; i < valid.size(); i++) {
+            if (failures.containsKey(i)) {
+                continue;
+            }
+            ImportRecord record = valid.get(i);
+            resourceNameIndex.put(record.resource);
+            Resource previous = record.hadId ? replaced.get(record.resource.getId()) : null;
+            if (previous != null) {
+                rollupCounters.removed(previous);
+            }
+            rollupCounters.added(record.resource);
+            if (record.hadId) {
+                availabilityFeed.changed(record.resource);
+            }
+        }
+    }
+
+    private ImportRecord parseJson(ImportRecord record) {
+        try {
+            return record.parsed(resourceMapper.fromResourceDTOtoEntity()
+                    .apply(objectMapper.readValue(record.line, ResourceDTO.class)));
+        } catch (JsonProcessingException e) {
+            return record.failed("Invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private static List<String> csvHeader(ImportRecord record) {
+        List<String> header;
+        try {
+            header = CsvLine.split(record.line);
+        } catch (IllegalArgumentException e) {
+            header = List.of(record.line);
+        }
+        header.stream()
+                .filter(column -> !CSV_COLUMNS.contains(column))
+                .findFirst()
+                .ifPresent(column -> {
+                    throw new HttpExceptionBuilder()
+                            .statusCode(HttpStatus.BAD_REQUEST)
+                            .developerMessage("Unknown CSV column " + column + ", expected some of " + CSV_COLUMNS)
+                            .build();
+                });
+        return header;
+    }
+
+    private ImportRecord parseCsv(ImportRecord record, List<String> header) {
+        try {
+            List<String> values = CsvLine.split(record.line);
+            if (values.size() != header.size()) {
+                return record.failed("Expected " + header.size() + " columns but found " + values.size());
+            }
+            Resource resource = new Resource();
+            for (int i = 0; i < header.size(); i++) {
+                String value = values.get(i).isEmpty() ? null : values.get(i);
+                switch (header.get(i)) {
+                    case "id": resource.setId(value); break;
+                    case "name": resource.setName(value); break;
+                    case "category": resource.setCategory(value); break;
+                    case "type": resource.setType(value); break;
+                    case "lastBorrow": resource.setLastBorrow(value == null ? null : LocalDate.parse(value)); break;
+                    case "unitsOwed": resource.setUnitsOwed(value == null ? null : Integer.valueOf(value)); break;
+                    case "unitsAvailable": resource.setUnitsAvailable(value == null ? null : Integer.valueOf(value)); break;
+                    default: break;
+                }
+            }
+            return record.parsed(resource);
+        } catch (RuntimeException e) {
+            return record.failed("Invalid value: " + e.getMessage());
+        }
+    }
+
+    private static final class ImportRecord {
+        private final long lineNumber;
+        private final String line;
+        private Resource resource;
+        private boolean hadId;
+        private String error;
+
+        ImportRecord(long lineNumber, String line) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+        }
+
+        ImportRecord parsed(Resource resource) {
+            this.resource = resource;
+            this.hadId = resource.getId() != null;
+            return this;
+        }
+
+        ImportRecord failed(String error) {
+            this.error = error;
+            return this;
+        }
+    }
+}
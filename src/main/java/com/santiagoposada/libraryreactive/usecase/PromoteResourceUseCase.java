@@ -0,0 +1,60 @@
+package com.santiagoposada.libraryreactive.usecase;
+
+import java.util.function.BiFunction;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.validation.annotation.Validated;
+
+import com.santiagoposada.libraryreactive.repository.ResourceCache;
+import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.repository.ShardedCounters;
+import com.santiagoposada.libraryreactive.repository.WriteBehindCounters;
+import com.santiagoposada.libraryreactive.utils.HttpExceptionBuilder;
+import com.santiagoposada.libraryreactive.utils.ResourceNotFoundException;
+
+import reactor.core.publisher.Mono;
+
+@Service
+@Validated
+public class PromoteResourceUseCase implements BiFunction<String, Integer, Mono<String>> {
+    private ResourceRepository resourceRepository;
+    private ShardedCounters shardedCounters;
+    private ResourceCache resourceCache;
+    private WriteBehindCounters writeBehindCounters;
+    private int maxShards;
+
+    public PromoteResourceUseCase(ResourceRepository resourceRepository, ShardedCounters shardedCounters,
+                                  ResourceCache resourceCache, WriteBehindCounters writeBehindCounters,
+                                  @Value("${library.shards.max:64}") int maxShards) {
+        this.resourceRepository = resourceRepository;
+        this.shardedCounters = shardedCounters;
+        this.resourceCache = resourceCache;
+        this.writeBehindCounters = writeBehindCounters;
+        this.maxShards = maxShards;
+    }
+
+    @Override
+    public Mono<String> apply(String id, Integer shards) {
+        if (id == null) {
+            return Mono.error(new ResourceNotFoundException("Id is required to split a resource"));
+        }
+        if (shards == null || shards < 2 || shards > maxShards) {
+            return Mono.error(new HttpExceptionBuilder()
+                    .statusCode(HttpStatus.BAD_REQUEST)
+                    .developerMessage("The number of shards must be between 2 and " + maxShards)
+                    .build());
+        }
+        // The shards are split from the persisted units: write what is pending in memory first
+        return writeBehindCounters.release(id)
+                .then(Mono.defer(() -> shardedCounters.promote(id, shards)))
+                // A borrow racing the promotion may have started tracking it again, stop before it is overlaid
+                .flatMap(resource -> writeBehindCounters.release(id).thenReturn(resource))
+                .doOnNext(resource -> resourceCache.invalidate(id))
+                .map(resource -> "The resource " + resource.getName() + " is now split across " + shards + " shards")
+                .switchIfEmpty(Mono.defer(() -> resourceRepository.existsById(id)
+                        .filter(exists -> exists)
+                        .map(exists -> "The resource with id: " + id + " is already split across shards")));
+    }
+}
@@ -0,0 +1,112 @@
+package com.santiagoposada.libraryreactive.usecase;
+
+import com.santiagoposada.libraryreactive.dto.PageRequestDTO;
+import com.santiagoposada.libraryreactive.dto.ResourceDTO;
+import com.santiagoposada.libraryreactive.dto.ResourcePageDTO;
+import com.santiagoposada.libraryreactive.dto.ResourceQueryDTO;
+import com.santiagoposada.libraryreactive.entity.Resource;
+import com.santiagoposada.libraryreactive.utils.HttpException;
+import com.santiagoposada.libraryreactive.utils.HttpExceptionBuilder;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.validation.annotation.Validated;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.BiFunction;
+
+@Service
+@Validated
+public class QueryResourcesUseCase implements BiFunction<ResourceQueryDTO, PageRequestDTO, Mono<ResourcePageDTO>> {
+
+    private ResourcePager resourcePager;
+
+    public QueryResourcesUseCase(ResourcePager resourcePager) {
+        this.resourcePager = resourcePager;
+    }
+
+    @Override
+    public Mono<ResourcePageDTO> apply(ResourceQueryDTO query, PageRequestDTO pageRequest) {
+        if (invalidRange(query)) {
+            return Mono.error(invalidRange());
+        }
+        return resourcePager.page(criteria(query), filter(query), pageRequest);
+    }
+
+    public Flux<ResourceDTO> stream(ResourceQueryDTO query, PageRequestDTO pageRequest) {
+        if (invalidRange(query)) {
+            return Flux.error(invalidRange());
+        }
+        return resourcePager.stream(criteria(query), filter(query), pageRequest);
+    }
+
+    private static boolean invalidRange(ResourceQueryDTO query) {
+        return query.getBorrowedFrom() != null && query.getBorrowedTo() != null
+                && query.getBorrowedFrom().isAfter(query.getBorrowedTo());
+    }
+
+    private static HttpException invalidRange() {
+        return new HttpExceptionBuilder()
+                .statusCode(HttpStatus.BAD_REQUEST)
+                .developerMessage("borrowedFrom must not be after borrowedTo")
+                .build();
+    }
+
+    /**
+     * Builds one query from the filters that were given; absent ones add no condition at all, so the
+     * planner can still pick the category or type index. The units and last borrow of a sharded resource
+     * live in its shards, so sharded documents pass the counter conditions here and {@link #filter} decides.
+     */
+    static Criteria criteria(ResourceQueryDTO query) {
+        List<Criteria> filters = new ArrayList<>();
+        if (query.getCategory() != null) {
+            filters.add(Criteria.where("category").is(query.getCategory()));
+        }
+        if (query.getType() != null) {
+            filters.add(Criteria.where("type").is(query.getType()));
+        }
+        List<Criteria> counters = new ArrayList<>();
+        if (query.getMinAvailable() != null) {
+            counters.add(Criteria.where("unitsAvailable").gte(query.getMinAvailable()));
+        }
+        if (query.getBorrowedFrom() != null || query.getBorrowedTo() != null) {
+            Criteria lastBorrow = Criteria.where("lastBorrow");
+            if (query.getBorrowedFrom() != null) {
+                lastBorrow.gte(query.getBorrowedFrom());
+            }
+            if (query.getBorrowedTo() != null) {
+                lastBorrow.lte(query.getBorrowedTo());
+            }
+            counters.add(lastBorrow);
+        }
+        if (!counters.isEmpty()) {
+            filters.add(new Criteria().orOperator(
+                    new Criteria().andOperator(counters.toArray(new Criteria[0])),
+                    Criteria.where("shards").exists(true)));
+        }
+        return filters.isEmpty() ? new Criteria() : new Criteria().andOperator(filters.toArray(new Criteria[0]));
+    }
+
+    /**
+     * Checks the counter conditions again on the resource as read with its counters overlaid, which is what
+     * holds for sharded resources and for units still pending in the write-behind counters.
+     */
+    static Predicate<Resource> filter(ResourceQueryDTO query) {
+        Integer minAvailable = query.getMinAvailable();
+        LocalDate from = query.getBorrowedFrom();
+        LocalDate to = query.getBorrowedTo();
+        if (minAvailable == null && from == null && to == null) {
+            return resource -> true;
+        }
+        return resource -> (minAvailable == null
+                        || resource.getUnitsAvailable() != null && resource.getUnitsAvailable() >= minAvailable)
+                && (from == null && to == null || resource.getLastBorrow() != null
+                        && (from == null || !resource.getLastBorrow().isBefore(from))
+                        && (to == null || !resource.getLastBorrow().isAfter(to)));
+    }
+}
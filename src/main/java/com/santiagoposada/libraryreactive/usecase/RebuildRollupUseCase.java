@@ -0,0 +1,25 @@
+package com.santiagoposada.libraryreactive.usecase;
+
+import com.santiagoposada.libraryreactive.repository.RollupCounters;
+import org.springframework.stereotype.Service;
+import org.springframework.validation.annotation.Validated;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Supplier;
+
+@Service
+@Validated
+public class RebuildRollupUseCase implements Supplier<Mono<String>> {
+
+    private RollupCounters rollupCounters;
+
+    public RebuildRollupUseCase(RollupCounters rollupCounters) {
+        this.rollupCounters = rollupCounters;
+    }
+
+    @Override
+    public Mono<String> get() {
+        return rollupCounters.rebuild()
+                .map(rollups -> "Rebuilt " + rollups + " availability rollups");
+    }
+}
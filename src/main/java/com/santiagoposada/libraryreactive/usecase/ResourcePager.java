@@ -0,0 +1,128 @@
+package com.santiagoposada.libraryreactive.usecase;
+
+import com.santiagoposada.libraryreactive.dto.PageRequestDTO;
+import com.santiagoposada.libraryreactive.dto.ResourceDTO;
+import com.santiagoposada.libraryreactive.dto.ResourcePageDTO;
+import com.santiagoposada.libraryreactive.entity.Resource;
+import com.santiagoposada.libraryreactive.mapper.ResourceMapper;
+import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.repository.ShardedCounters;
+import com.santiagoposada.libraryreactive.repository.WriteBehindCounters;
+import com.santiagoposada.libraryreactive.utils.HttpException;
+import com.santiagoposada.libraryreactive.utils.HttpExceptionBuilder;
+import com.santiagoposada.libraryreactive.utils.PageCursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Keyset pagination over _id shared by the listing use cases. Each page reads one document more than asked
+ * for to know whether a next page exists, so the last page never ends with an empty round trip.
+ *
+ * Resources come with the sharded and write-behind counters overlaid, as single reads do. A filter on those
+ * counters is applied after the overlay, so a page can hold fewer resources than asked for and still have a
+ * next cursor.
+ */
+@Component
+public class ResourcePager {
+
+    private ResourceMapper resourceMapper;
+    private ResourceRepository resourceRepository;
+    private ShardedCounters shardedCounters;
+    private WriteBehindCounters writeBehindCounters;
+    private int defaultSize;
+    private int maxSize;
+    private int streamBatchSize;
+
+    public ResourcePager(ResourceMapper resourceMapper, ResourceRepository resourceRepository,
+                         ShardedCounters shardedCounters, WriteBehindCounters writeBehindCounters,
+                         @Value("${library.paging.default-size:100}") int defaultSize,
+                         @Value("${library.paging.max-size:1000}") int maxSize,
+                         @Value("${library.streaming.batch-size:256}") int streamBatchSize) {
+        this.resourceMapper = resourceMapper;
+        this.resourceRepository = resourceRepository;
+        this.shardedCounters = shardedCounters;
+        this.writeBehindCounters = writeBehindCounters;
+        this.defaultSize = defaultSize;
+        this.maxSize = maxSize;
+        this.streamBatchSize = streamBatchSize;
+    }
+
+    public Mono<ResourcePageDTO> page(Criteria criteria, PageRequestDTO pageRequest) {
+        return page(criteria, resource -> true, pageRequest);
+    }
+
+    /**
+     * Reads a page of the resources matching the criteria, keeping those that still match the filter once
+     * their counters are overlaid.
+     */
+    public Mono<ResourcePageDTO> page(Criteria criteria, Predicate<Resource> filter, PageRequestDTO pageRequest) {
+        Integer limit = pageRequest.getLimit();
+        if (limit != null && limit < 1) {
+            return Mono.error(invalidLimit());
+        }
+        int size = limit == null ? defaultSize : Math.min(limit, maxSize);
+        return Mono.fromCallable(() -> pageRequest.getAfter() == null ? "" : PageCursor.decode(pageRequest.getAfter()))
+                .flatMap(after -> resourceRepository.findPage(criteria, after.isEmpty() ? null : after, size + 1,
+                                pageRequest.getFields())
+                        .collectList())
+                .flatMap(resources -> {
+                    boolean more = resources.size() > size;
+                    List<Resource> read = more ? resources.subList(0, size) : resources;
+                    String next = more ? PageCursor.encode(read.get(size - 1).getId()) : null;
+                    return Flux.fromIterable(read)
+                            .flatMapSequential(this::overlay)
+                            .filter(filter)
+                            .map(resourceMapper.fromResourceEntityToDTO(pageRequest.getFields()))
+                            .collectList()
+                            .map(page -> new ResourcePageDTO(page, next));
+                });
+    }
+
+    /**
+     * Streams every match after the cursor, or only the first {@code limit} when one is given, mapping each
+     * resource as soon as it is read. Demand is passed to Mongo in cursor batches, so a slow client holds
+     * back the cursor instead of the server buffering for it.
+     */
+    public Flux<ResourceDTO> stream(Criteria criteria, PageRequestDTO pageRequest) {
+        return stream(criteria, resource -> true, pageRequest);
+    }
+
+    /**
+     * Streams the resources matching the criteria that still match the filter once their counters are
+     * overlaid, the limit counting only those.
+     */
+    public Flux<ResourceDTO> stream(Criteria criteria, Predicate<Resource> filter, PageRequestDTO pageRequest) {
+        Integer limit = pageRequest.getLimit();
+        if (limit != null && limit < 1) {
+            return Flux.error(invalidLimit());
+        }
+        return Mono.fromCallable(() -> pageRequest.getAfter() == null ? "" : PageCursor.decode(pageRequest.getAfter()))
+                .flatMapMany(after -> {
+                    Flux<Resource> resources = resourceRepository.streamAll(criteria, after.isEmpty() ? null : after,
+                                    pageRequest.getFields(), limit == null ? streamBatchSize : Math.min(limit, streamBatchSize))
+                            .limitRate(streamBatchSize)
+                            .flatMapSequential(this::overlay)
+                            .filter(filter);
+                    return limit == null ? resources : resources.take(limit);
+                })
+                .map(resourceMapper.fromResourceEntityToDTO(pageRequest.getFields()));
+    }
+
+    private Mono<Resource> overlay(Resource resource) {
+        return shardedCounters.overlay(resource).map(writeBehindCounters::overlay);
+    }
+
+    private HttpException invalidLimit() {
+        return new HttpExceptionBuilder()
+                .statusCode(HttpStatus.BAD_REQUEST)
+                .developerMessage("The limit must be at least 1")
+                .build();
+    }
+}
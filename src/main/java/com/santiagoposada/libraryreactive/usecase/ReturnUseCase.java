@@ -5,8 +5,14 @@ import java.util.function.Function;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 
-import com.santiagoposada.libraryreactive.mapper.ResourceMapper;
+import com.santiagoposada.libraryreactive.entity.Resource;
+import com.santiagoposada.libraryreactive.repository.AvailabilityFeed;
+import com.santiagoposada.libraryreactive.repository.BatchingResourceLoader;
+import com.santiagoposada.libraryreactive.repository.ResourceCache;
 import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.repository.RollupCounters;
+import com.santiagoposada.libraryreactive.repository.ShardedCounters;
+import com.santiagoposada.libraryreactive.repository.WriteBehindCounters;
 import com.santiagoposada.libraryreactive.utils.ResourceNotFoundException;
 
 import reactor.core.publisher.Mono;
@@ -15,16 +21,28 @@ import reactor.core.publisher.Mono;
 @Service
 @Validated
 public class ReturnUseCase implements Function<String, Mono<String>> {
+    private static final String NOTHING_OWED = "There arent units owed to be returned of that resource";
 
 
-    private ResourceMapper resourceMapper;
     private ResourceRepository resourceRepository;
-    private UpdateUseCase updateUseCase;
+    private WriteBehindCounters writeBehindCounters;
+    private ShardedCounters shardedCounters;
+    private ResourceCache resourceCache;
+    private BatchingResourceLoader resourceLoader;
+    private RollupCounters rollupCounters;
+    private AvailabilityFeed availabilityFeed;
 
-    public ReturnUseCase(ResourceMapper resourceMapper, ResourceRepository resourceRepository, UpdateUseCase updateUseCase){
-        this.resourceMapper = resourceMapper;
+    public ReturnUseCase(ResourceRepository resourceRepository, WriteBehindCounters writeBehindCounters,
+                         ShardedCounters shardedCounters, ResourceCache resourceCache,
+                         BatchingResourceLoader resourceLoader, RollupCounters rollupCounters,
+                         AvailabilityFeed availabilityFeed){
         this.resourceRepository = resourceRepository;
-        this.updateUseCase = updateUseCase;
+        this.writeBehindCounters = writeBehindCounters;
+        this.shardedCounters = shardedCounters;
+        this.resourceCache = resourceCache;
+        this.resourceLoader = resourceLoader;
+        this.rollupCounters = rollupCounters;
+        this.availabilityFeed = availabilityFeed;
     }
 
     @Override
@@ -33,14 +51,43 @@ public class ReturnUseCase implements Function<String, Mono<String>> {
         if (id == null) {
             return Mono.error(new ResourceNotFoundException("Id is required to return a resource"));
         }
-        return resourceRepository.findById(id).flatMap(
-                resource -> {
-                    resource.setUnitsOwed(resource.getUnitsOwed() - 1);
-                    resource.setUnitsAvailable(resource.getUnitsAvailable() + 1);
-                    return updateUseCase.apply(resourceMapper.fromResourceEntityToDTO().apply(resource))
-                            .thenReturn("The resource with id: "
-                                    + resource.getId() + " was returned successfully");
-                }
-        );
+        Mono<Resource> updated = shardedCounters.isSharded(id)
+                ? shardedCounters.returnUnit(id)
+                        // A miss that dropped the hint means the resource was demoted elsewhere: use its document
+                        .switchIfEmpty(Mono.defer(() -> shardedCounters.isSharded(id) ? Mono.empty()
+                                : returnToDocument(id)))
+                : returnToDocument(id);
+        return updated
+                .doOnNext(this::recordReturn)
+                .map(this::returnedMessage)
+                .switchIfEmpty(Mono.defer(() -> notReturned(id)));
+    }
+
+    private Mono<Resource> returnToDocument(String id) {
+        return writeBehindCounters.isEnabled() ? writeBehindCounters.returnUnit(id)
+                : resourceRepository.returnUnit(id).doOnNext(resourceCache::put);
+    }
+
+    /**
+     * Only reached when the conditional update matched nothing: tell "nothing owed" apart from "no such id",
+     * and catch resources another instance split across shards.
+     */
+    private Mono<String> notReturned(String id) {
+        if (shardedCounters.isSharded(id) || writeBehindCounters.isTracked(id)) {
+            return Mono.just(NOTHING_OWED);
+        }
+        return resourceLoader.findById(id).flatMap(resource -> resource.getShards() == null
+                ? Mono.just(NOTHING_OWED)
+                : shardedCounters.returnUnit(resource).doOnNext(this::recordReturn).map(this::returnedMessage).defaultIfEmpty(NOTHING_OWED));
+    }
+
+    private String returnedMessage(Resource resource) {
+        return "The resource with id: "
+                + resource.getId() + " was returned successfully";
+    }
+
+    private void recordReturn(Resource resource) {
+        rollupCounters.unitsChanged(resource, 1, -1);
+        availabilityFeed.changed(resource);
     }
 }
@@ -0,0 +1,54 @@
+package com.santiagoposada.libraryreactive.usecase;
+
+import com.santiagoposada.libraryreactive.dto.ResourceDTO;
+import com.santiagoposada.libraryreactive.mapper.ResourceMapper;
+import com.santiagoposada.libraryreactive.repository.ResourceNameIndex;
+import com.santiagoposada.libraryreactive.utils.HttpExceptionBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.validation.annotation.Validated;
+import reactor.core.publisher.Flux;
+
+import java.util.Set;
+import java.util.function.BiFunction;
+
+@Service
+@Validated
+public class SearchResourcesUseCase implements BiFunction<String, Integer, Flux<ResourceDTO>> {
+
+    private static final Set<String> FIELDS = Set.of("id", "name");
+
+    private ResourceMapper resourceMapper;
+    private ResourceNameIndex resourceNameIndex;
+    private int defaultSize;
+    private int maxSize;
+
+    public SearchResourcesUseCase(ResourceMapper resourceMapper, ResourceNameIndex resourceNameIndex,
+                                  @Value("${library.search.default-size:10}") int defaultSize,
+                                  @Value("${library.search.max-size:50}") int maxSize) {
+        this.resourceMapper = resourceMapper;
+        this.resourceNameIndex = resourceNameIndex;
+        this.defaultSize = defaultSize;
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public Flux<ResourceDTO> apply(String query, Integer limit) {
+        if (query == null || query.isBlank()) {
+            return Flux.error(new HttpExceptionBuilder()
+                    .statusCode(HttpStatus.BAD_REQUEST)
+                    .developerMessage("A search query is required")
+                    .build());
+        }
+        if (limit != null && limit < 1) {
+            return Flux.error(new HttpExceptionBuilder()
+                    .statusCode(HttpStatus.BAD_REQUEST)
+                    .developerMessage("The limit must be at least 1")
+                    .build());
+        }
+        int size = limit == null ? defaultSize : Math.min(limit, maxSize);
+        return Flux.fromIterable(resourceNameIndex.search(query, size))
+                .map(resourceMapper.fromResourceEntityToDTO(FIELDS));
+    }
+}
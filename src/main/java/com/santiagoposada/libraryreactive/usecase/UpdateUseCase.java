@@ -1,14 +1,27 @@
 package com.santiagoposada.libraryreactive.usecase;
 
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 
 import com.santiagoposada.libraryreactive.dto.ResourceDTO;
+import com.santiagoposada.libraryreactive.entity.Resource;
 import com.santiagoposada.libraryreactive.mapper.ResourceMapper;
+import com.santiagoposada.libraryreactive.repository.AvailabilityFeed;
+import com.santiagoposada.libraryreactive.repository.ResourceCache;
+import com.santiagoposada.libraryreactive.repository.ResourceNameIndex;
 import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.repository.RollupCounters;
+import com.santiagoposada.libraryreactive.repository.WriteBehindCounters;
+import com.santiagoposada.libraryreactive.utils.HttpException;
+import com.santiagoposada.libraryreactive.utils.HttpExceptionBuilder;
 import com.santiagoposada.libraryreactive.utils.ResourceNotFoundException;
 
 import reactor.core.publisher.Mono;
+import reactor.util.retry.RetryBackoffSpec;
+
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 @Validated
@@ -16,10 +29,25 @@ public class UpdateUseCase implements CreateResource {
 
     private ResourceMapper resourceMapper;
     private ResourceRepository resourceRepository;
+    private RetryBackoffSpec optimisticLockRetry;
+    private WriteBehindCounters writeBehindCounters;
+    private ResourceCache resourceCache;
+    private RollupCounters rollupCounters;
+    private ResourceNameIndex resourceNameIndex;
+    private AvailabilityFeed availabilityFeed;
 
-    public UpdateUseCase(ResourceMapper resourceMapper, ResourceRepository resourceRepository) {
+    public UpdateUseCase(ResourceMapper resourceMapper, ResourceRepository resourceRepository,
+                         RetryBackoffSpec optimisticLockRetry, WriteBehindCounters writeBehindCounters,
+                         ResourceCache resourceCache, RollupCounters rollupCounters,
+                         ResourceNameIndex resourceNameIndex, AvailabilityFeed availabilityFeed) {
         this.resourceMapper = resourceMapper;
         this.resourceRepository = resourceRepository;
+        this.optimisticLockRetry = optimisticLockRetry;
+        this.writeBehindCounters = writeBehindCounters;
+        this.resourceCache = resourceCache;
+        this.rollupCounters = rollupCounters;
+        this.resourceNameIndex = resourceNameIndex;
+        this.availabilityFeed = availabilityFeed;
     }
 
     @Override
@@ -28,7 +56,51 @@ public class UpdateUseCase implements CreateResource {
         if (resourceDTO.getId() == null) {
             return Mono.error(new ResourceNotFoundException("Id is required to update a resource"));
         }
-        return resourceRepository.save(resourceMapper.fromResourceDTOtoEntity().apply(resourceDTO))
-                .map(resource -> resourceMapper.fromResourceEntityToDTO().apply(resource));
+        Resource resource = resourceMapper.fromResourceDTOtoEntity().apply(resourceDTO);
+        boolean clientVersion = resourceDTO.getVersion() != null;
+        // What the saved document replaced, to move its totals between rollups
+        AtomicReference<Resource> replaced = new AtomicReference<>();
+        Mono<Resource> save = Mono.defer(() -> resourceRepository.findById(resourceDTO.getId())
+                .doOnNext(replaced::set)
+                .flatMap(current -> {
+                    if (current.getShards() != null) {
+                        // Its units live in the shards, overwriting the document would orphan them
+                        return Mono.error(conflict("The resource " + resourceDTO.getId()
+                                + " is split across shards, demote it before updating"));
+                    }
+                    if (!clientVersion) {
+                        resource.setVersion(current.getVersion());
+                    }
+                    return resourceRepository.save(resource);
+                })
+                .switchIfEmpty(Mono.defer(() -> {
+                    replaced.set(null);
+                    return resourceRepository.save(resource);
+                })));
+
+        Mono<Resource> saved = clientVersion
+                // The client sent the version it read: a conflict means its copy is stale, retrying would not help
+                ? save.onErrorMap(OptimisticLockingFailureException.class, error -> conflict("The resource "
+                        + resourceDTO.getId() + " was modified since version " + resourceDTO.getVersion()))
+                : save.retryWhen(optimisticLockRetry);
+        return writeBehindCounters.release(resourceDTO.getId())
+                .then(saved)
+                .doOnNext(resourceCache::put)
+                .doOnNext(updated -> {
+                    if (replaced.get() != null) {
+                        rollupCounters.removed(replaced.get());
+                    }
+                    rollupCounters.added(updated);
+                })
+                .doOnNext(resourceNameIndex::put)
+                .flatMap(updated -> availabilityFeed.changed(updated.getId()).thenReturn(updated))
+                .map(resourceMapper.fromResourceEntityToDTO());
+    }
+
+    private HttpException conflict(String message) {
+        return new HttpExceptionBuilder()
+                .statusCode(HttpStatus.CONFLICT)
+                .developerMessage(message)
+                .build();
     }
 }
@@ -0,0 +1,44 @@
+package com.santiagoposada.libraryreactive.usecase;
+
+import com.santiagoposada.libraryreactive.dto.AvailabilityEventDTO;
+import com.santiagoposada.libraryreactive.repository.AvailabilityFeed;
+import com.santiagoposada.libraryreactive.utils.HttpExceptionBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.validation.annotation.Validated;
+import reactor.core.publisher.Flux;
+
+import java.util.Set;
+import java.util.function.Function;
+
+@Service
+@Validated
+public class WatchAvailabilityUseCase implements Function<Set<String>, Flux<AvailabilityEventDTO>> {
+
+    private AvailabilityFeed availabilityFeed;
+    private int maxIds;
+
+    public WatchAvailabilityUseCase(AvailabilityFeed availabilityFeed,
+                                    @Value("${library.availability.max-ids:100}") int maxIds) {
+        this.availabilityFeed = availabilityFeed;
+        this.maxIds = maxIds;
+    }
+
+    @Override
+    public Flux<AvailabilityEventDTO> apply(Set<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Flux.error(new HttpExceptionBuilder()
+                    .statusCode(HttpStatus.BAD_REQUEST)
+                    .developerMessage("At least one id is required")
+                    .build());
+        }
+        if (ids.size() > maxIds) {
+            return Flux.error(new HttpExceptionBuilder()
+                    .statusCode(HttpStatus.BAD_REQUEST)
+                    .developerMessage("At most " + maxIds + " ids can be watched at once")
+                    .build());
+        }
+        return availabilityFeed.watch(ids);
+    }
+}
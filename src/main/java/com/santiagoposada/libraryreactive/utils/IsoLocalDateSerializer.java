@@ -0,0 +1,42 @@
+package com.santiagoposada.libraryreactive.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Writes a LocalDate as its ISO "yyyy-MM-dd" string straight from the date fields, without the formatter
+ * JavaTimeModule goes through. Years outside 0000-9999 need a sign or more digits and take the slow path,
+ * so the output is always the same as {@link LocalDate#toString()}.
+ */
+public class IsoLocalDateSerializer extends StdSerializer<LocalDate> {
+
+    public IsoLocalDateSerializer() {
+        super(LocalDate.class);
+    }
+
+    @Override
+    public void serialize(LocalDate value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        int year = value.getYear();
+        if (year < 0 || year > 9999) {
+            generator.writeString(value.toString());
+            return;
+        }
+        char[] text = new char[10];
+        digits(text, 0, year / 100);
+        digits(text, 2, year % 100);
+        text[4] = '-';
+        digits(text, 5, value.getMonthValue());
+        text[7] = '-';
+        digits(text, 8, value.getDayOfMonth());
+        generator.writeString(text, 0, text.length);
+    }
+
+    private static void digits(char[] text, int offset, int value) {
+        text[offset] = (char) ('0' + value / 10);
+        text[offset + 1] = (char) ('0' + value % 10);
+    }
+}
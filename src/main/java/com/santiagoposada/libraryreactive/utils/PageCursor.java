@@ -0,0 +1,36 @@
+package com.santiagoposada.libraryreactive.utils;
+
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque page cursors. A cursor wraps the _id of the last resource of a page; clients only pass it back.
+ * ObjectId-shaped ids are stored as ObjectIds and the others as strings, so the id alone tells which
+ * BSON type to resume from.
+ */
+public final class PageCursor {
+
+    private PageCursor() {
+    }
+
+    public static String encode(String lastId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(lastId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String decode(String cursor) {
+        try {
+            String lastId = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (lastId.isBlank()) {
+                throw new IllegalArgumentException("Empty cursor");
+            }
+            return lastId;
+        } catch (IllegalArgumentException e) {
+            throw new HttpExceptionBuilder()
+                    .statusCode(HttpStatus.BAD_REQUEST)
+                    .developerMessage("The cursor " + cursor + " is not valid")
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.santiagoposada.libraryreactive.utils;
+
+import org.springframework.http.HttpStatus;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Parses the {@code fields} query parameter of the read endpoints into the set of resource fields to return.
+ */
+public final class ResourceFields {
+
+    public static final Set<String> ALL = Set.of(
+            "id", "name", "category", "type", "lastBorrow", "unitsOwed", "unitsAvailable", "version");
+
+    private ResourceFields() {
+    }
+
+    /**
+     * Returns the requested fields, always including the id, or null when every field was requested.
+     */
+    public static Set<String> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        Set<String> requested = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        requested.stream()
+                .filter(field -> !ALL.contains(field))
+                .findFirst()
+                .ifPresent(field -> {
+                    throw new HttpExceptionBuilder()
+                            .statusCode(HttpStatus.BAD_REQUEST)
+                            .developerMessage("Unknown field " + field + ", expected some of " + ALL)
+                            .build();
+                });
+        requested.add("id");
+        return requested.containsAll(ALL) ? null : requested;
+    }
+}
@@ -0,0 +1,46 @@
+package com.santiagoposada.libraryreactive.utils;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Deduplicates concurrent lookups: callers asking for a key while a lookup for it is in flight share that
+ * lookup's result instead of starting their own. The entry is released as soon as the lookup completes,
+ * fails or is cancelled, so nothing is served after the fact.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+    private final Function<K, Mono<V>> lookup;
+
+    public SingleFlight(Function<K, Mono<V>> lookup) {
+        this.lookup = lookup;
+    }
+
+    public Mono<V> get(K key) {
+        return Mono.defer(() -> inFlight.computeIfAbsent(key, this::share));
+    }
+
+    /**
+     * Makes the next caller for the key start a new lookup; callers already sharing the current one keep it.
+     */
+    public void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    private Mono<V> share(K key) {
+        AtomicReference<Mono<V>> shared = new AtomicReference<>();
+        shared.set(lookup.apply(key)
+                .doFinally(signal -> inFlight.remove(key, shared.get()))
+                .cache());
+        return shared.get();
+    }
+}
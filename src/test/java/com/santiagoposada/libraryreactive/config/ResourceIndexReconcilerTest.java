@@ -0,0 +1,113 @@
+package com.santiagoposada.libraryreactive.config;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import com.santiagoposada.libraryreactive.entity.Resource;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.mockito.ArgumentMatchers.any;
+
+public class ResourceIndexReconcilerTest {
+
+    private final ReactiveMongoTemplate mongoTemplate = Mockito.mock(ReactiveMongoTemplate.class);
+    private final ReactiveIndexOperations indexOps = Mockito.mock(ReactiveIndexOperations.class);
+    private final ResourceIndexReconciler reconciler = new ResourceIndexReconciler(mongoTemplate);
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(ResourceIndexReconciler.class);
+    private final ListAppender<ILoggingEvent> logs = new ListAppender<>();
+
+    @BeforeEach
+    void setUp() {
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(new MongoCustomConversions(List.of()).getSimpleTypeHolder());
+        Mockito.when(mongoTemplate.getConverter())
+                .thenReturn(new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext));
+        Mockito.when(mongoTemplate.indexOps(Resource.class)).thenReturn(indexOps);
+        logs.start();
+        logger.addAppender(logs);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(logs);
+    }
+
+    @Test
+    void testReconcile_createsMissingIndexAndLogsDrift() {
+        // Arrange
+        Mockito.when(indexOps.getIndexInfo()).thenReturn(Flux.just(
+                index("_id_", new Document("_id", 1)),
+                index("type_id", new Document("type", 1).append("_id", 1)),
+                // Declared as {category: 1, unitsAvailable: 1}
+                index("category_unitsAvailable", new Document("category", 1).append("unitsAvailable", -1)),
+                index("shards", new Document("shards", 1)).append("sparse", true))
+                .map(IndexInfo::indexInfoOf));
+        Mockito.when(indexOps.ensureIndex(any(IndexDefinition.class))).thenReturn(Mono.just("category_id"));
+
+        // Act & Assert
+        StepVerifier.create(reconciler.reconcile())
+                .expectNext("category_id")
+                .verifyComplete();
+
+        ArgumentCaptor<IndexDefinition> created = ArgumentCaptor.forClass(IndexDefinition.class);
+        Mockito.verify(indexOps).ensureIndex(created.capture());
+        Assertions.assertEquals(new Document("category", 1).append("_id", 1), created.getValue().getIndexKeys());
+        Assertions.assertEquals("category_id", created.getValue().getIndexOptions().getString("name"));
+        Assertions.assertTrue(created.getValue().getIndexOptions().getBoolean("background"));
+
+        List<ILoggingEvent> warnings = logs.list;
+        Assertions.assertEquals(1, warnings.size());
+        Assertions.assertEquals(Level.WARN, warnings.get(0).getLevel());
+        Assertions.assertTrue(warnings.get(0).getFormattedMessage()
+                .startsWith("Index category_unitsAvailable on resources is"));
+    }
+
+    @Test
+    void testReconcile_logsUndeclaredIndex() {
+        // Arrange
+        Mockito.when(indexOps.getIndexInfo()).thenReturn(Flux.just(
+                index("_id_", new Document("_id", 1)),
+                index("type_id", new Document("type", 1).append("_id", 1)),
+                index("category_id", new Document("category", 1).append("_id", 1)),
+                index("category_unitsAvailable", new Document("category", 1).append("unitsAvailable", 1)),
+                index("shards", new Document("shards", 1)).append("sparse", true),
+                index("name", new Document("name", 1)))
+                .map(IndexInfo::indexInfoOf));
+
+        // Act & Assert
+        StepVerifier.create(reconciler.reconcile()).verifyComplete();
+
+        Mockito.verify(indexOps, Mockito.never()).ensureIndex(any(IndexDefinition.class));
+        Assertions.assertEquals(List.of("Index name on resources is not declared on the entity"),
+                logs.list.stream().map(ILoggingEvent::getFormattedMessage).collect(Collectors.toList()));
+    }
+
+    private static Document index(String name, Document keys) {
+        return new Document("name", name).append("key", keys);
+    }
+}
@@ -0,0 +1,120 @@
+package com.santiagoposada.libraryreactive.config;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.santiagoposada.libraryreactive.dto.ResourceDTO;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Encoding a page of 100 resources with the default Jackson encoder and mapper against the tuned path
+ * (Blackbird, ISO date serializer, cached writers): the encoder alone, and end to end through a WebFlux
+ * handler answering GET /resources in memory. Not part of the test run: after {@code mvn test-compile},
+ * run its main with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResourceJsonBenchmark {
+
+    private static final ResolvableType PAGE_TYPE = ResolvableType.forClassWithGenerics(List.class, ResourceDTO.class);
+
+    private final List<ResourceDTO> page = IntStream.range(0, 100)
+            .mapToObj(i -> ResourceJsonEncoderTest.resource(String.valueOf(i)))
+            .collect(Collectors.toList());
+    private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+    private final ObjectMapper defaultMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private final ObjectMapper tunedMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .modulesToInstall(WebFluxConfig.blackbirdModule(), WebFluxConfig.isoLocalDateModule())
+            .build();
+    private final Jackson2JsonEncoder defaultEncoder = new Jackson2JsonEncoder(defaultMapper);
+    private final ResourceJsonEncoder tunedEncoder = new ResourceJsonEncoder(tunedMapper);
+
+    private final WebTestClient defaultClient = client(HandlerStrategies.builder()
+            .codecs(codecs -> codecs.defaultCodecs().jackson2JsonEncoder(defaultEncoder))
+            .build());
+    private final WebTestClient tunedClient = client(HandlerStrategies.builder()
+            .codecs(codecs -> {
+                codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(tunedMapper));
+                codecs.customCodecs().register(tunedEncoder);
+            })
+            .build());
+
+    @Benchmark
+    public DataBuffer encodeDefault() {
+        return defaultEncoder.encodeValue(page, bufferFactory, PAGE_TYPE, MediaType.APPLICATION_JSON, Map.of());
+    }
+
+    @Benchmark
+    public DataBuffer encodeTuned() {
+        return tunedEncoder.encodeValue(page, bufferFactory, PAGE_TYPE, MediaType.APPLICATION_JSON, Map.of());
+    }
+
+    @Benchmark
+    public byte[] endToEndDefault() {
+        return get(defaultClient);
+    }
+
+    @Benchmark
+    public byte[] endToEndTuned() {
+        return get(tunedClient);
+    }
+
+    private byte[] get(WebTestClient client) {
+        return client.get().uri("/resources").exchange().expectBody().returnResult().getResponseBody();
+    }
+
+    private WebTestClient client(HandlerStrategies strategies) {
+        RouterFunction<ServerResponse> route = RouterFunctions.route()
+                .GET("/resources", request -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON)
+                        .body(Mono.just(page), new ParameterizedTypeReference<List<ResourceDTO>>() {}))
+                .build();
+        return WebTestClient.bindToRouterFunction(route).handlerStrategies(strategies).build();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ResourceJsonBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,97 @@
+package com.santiagoposada.libraryreactive.config;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.santiagoposada.libraryreactive.dto.ResourceDTO;
+import com.santiagoposada.libraryreactive.dto.ResourceProjectionDTO;
+
+public class ResourceJsonEncoderTest {
+
+    private final ObjectMapper defaultMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private final ObjectMapper tunedMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .modulesToInstall(WebFluxConfig.blackbirdModule(), WebFluxConfig.isoLocalDateModule())
+            .build();
+    private final ResourceJsonEncoder resourceJsonEncoder = new ResourceJsonEncoder(tunedMapper);
+    private final Jackson2JsonEncoder defaultEncoder = new Jackson2JsonEncoder(defaultMapper);
+
+    @Test
+    void testEncodeValue_matchesDefaultEncoder() {
+        // Arrange
+        ResourceDTO resource = resource("1");
+        ResolvableType listType = ResolvableType.forClassWithGenerics(List.class, ResourceDTO.class);
+        ResolvableType resourceType = ResolvableType.forClass(ResourceDTO.class);
+
+        // Act & Assert
+        Assertions.assertEquals(encode(defaultEncoder, resource, resourceType),
+                encode(resourceJsonEncoder, resource, resourceType));
+        Assertions.assertEquals(encode(defaultEncoder, List.of(resource, resource("2")), listType),
+                encode(resourceJsonEncoder, List.of(resource, resource("2")), listType));
+    }
+
+    @Test
+    void testEncodeValue_leavesOutNullsOnlyOfProjections() {
+        // Arrange
+        ResourceDTO full = new ResourceDTO();
+        full.setId("1");
+        ResourceDTO projected = new ResourceProjectionDTO();
+        projected.setId("1");
+        projected.setUnitsAvailable(4);
+        ResolvableType resourceType = ResolvableType.forClass(ResourceDTO.class);
+        ResolvableType listType = ResolvableType.forClassWithGenerics(List.class, ResourceDTO.class);
+
+        // Act
+        String fullJson = encode(resourceJsonEncoder, full, resourceType);
+        String projectedJson = encode(resourceJsonEncoder, projected, resourceType);
+        String projectedList = encode(resourceJsonEncoder, List.of(projected), listType);
+
+        // Assert
+        Assertions.assertTrue(fullJson.contains("\"name\":null"));
+        Assertions.assertEquals("{\"id\":\"1\",\"unitsAvailable\":4}", projectedJson);
+        Assertions.assertEquals("[" + projectedJson + "]", projectedList);
+    }
+
+    @Test
+    void testCanEncode_onlyResources() {
+        Assertions.assertTrue(resourceJsonEncoder.canEncode(ResolvableType.forClass(ResourceDTO.class), MediaType.APPLICATION_JSON));
+        Assertions.assertTrue(resourceJsonEncoder.canEncode(
+                ResolvableType.forClassWithGenerics(List.class, ResourceDTO.class), MediaType.APPLICATION_JSON));
+        Assertions.assertFalse(resourceJsonEncoder.canEncode(ResolvableType.forClass(Object.class), MediaType.APPLICATION_JSON));
+        Assertions.assertFalse(resourceJsonEncoder.canEncode(ResolvableType.forClass(String.class), MediaType.APPLICATION_JSON));
+    }
+
+    private String encode(Jackson2JsonEncoder encoder, Object value, ResolvableType type) {
+        DataBuffer buffer = encoder.encodeValue(value, new DefaultDataBufferFactory(), type,
+                MediaType.APPLICATION_JSON, Map.of());
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    static ResourceDTO resource(String id) {
+        ResourceDTO resource = new ResourceDTO();
+        resource.setId(id);
+        resource.setName("Nombre #" + id);
+        resource.setCategory("Area tematica");
+        resource.setType("Tipo");
+        resource.setLastBorrow(LocalDate.parse("2020-01-10"));
+        resource.setUnitsAvailable(4);
+        resource.setUnitsOwed(1);
+        resource.setVersion(3L);
+        return resource;
+    }
+}
@@ -0,0 +1,123 @@
+package com.santiagoposada.libraryreactive.mapper;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.santiagoposada.libraryreactive.dto.ResourceDTO;
+import com.santiagoposada.libraryreactive.entity.Resource;
+
+/**
+ * Mapping a page of resources the way the use cases do, one {@code .map(...)} call per element: the
+ * previous mapper, which built its function on every call and looked fields up in the set per element,
+ * against the shared functions. Not part of the test run: after {@code mvn test-compile}, run its main
+ * with the test classpath; the GC profiler reports the allocation rate next to the throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResourceMapperBenchmark {
+
+    private static final int PAGE = 100;
+    private static final Set<String> FIELDS = Set.of("id", "name", "unitsAvailable");
+
+    private final ResourceMapper resourceMapper = new ResourceMapper();
+    private final List<Resource> page = IntStream.range(0, PAGE)
+            .mapToObj(i -> new Resource(String.valueOf(i), "Nombre #" + i, "Area tematica", "Tipo",
+                    LocalDate.parse("2020-01-10"), 1, 4))
+            .collect(Collectors.toList());
+
+    @Benchmark
+    @OperationsPerInvocation(PAGE)
+    public void previousMapper(Blackhole blackhole) {
+        for (Resource resource : page) {
+            blackhole.consume(previousEntityToDTO(null).apply(resource));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAGE)
+    public void sharedMapper(Blackhole blackhole) {
+        for (Resource resource : page) {
+            blackhole.consume(resourceMapper.fromResourceEntityToDTO().apply(resource));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAGE)
+    public void previousProjection(Blackhole blackhole) {
+        for (Resource resource : page) {
+            blackhole.consume(previousEntityToDTO(FIELDS).apply(resource));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAGE)
+    public void sharedProjection(Blackhole blackhole) {
+        for (Resource resource : page) {
+            blackhole.consume(resourceMapper.fromResourceEntityToDTO(FIELDS).apply(resource));
+        }
+    }
+
+    /**
+     * ResourceMapper.fromResourceEntityToDTO(Set) as it was before the functions were shared.
+     */
+    private static Function<Resource, ResourceDTO> previousEntityToDTO(Set<String> fields) {
+        if (fields != null) {
+            return resource -> {
+                ResourceDTO resourceDTO = new ResourceDTO();
+                resourceDTO.setId(resource.getId());
+                resourceDTO.setName(fields.contains("name") ? resource.getName() : null);
+                resourceDTO.setCategory(fields.contains("category") ? resource.getCategory() : null);
+                resourceDTO.setType(fields.contains("type") ? resource.getType() : null);
+                resourceDTO.setLastBorrow(fields.contains("lastBorrow") ? resource.getLastBorrow() : null);
+                resourceDTO.setUnitsAvailable(fields.contains("unitsAvailable") ? resource.getUnitsAvailable() : null);
+                resourceDTO.setUnitsOwed(fields.contains("unitsOwed") ? resource.getUnitsOwed() : null);
+                resourceDTO.setVersion(fields.contains("version") ? resource.getVersion() : null);
+                return resourceDTO;
+            };
+        }
+        return resource -> {
+            ResourceDTO resourceDTO = new ResourceDTO();
+            resourceDTO.setId(resource.getId());
+            resourceDTO.setName(resource.getName());
+            resourceDTO.setCategory(resource.getCategory());
+            resourceDTO.setType(resource.getType());
+            resourceDTO.setLastBorrow(resource.getLastBorrow());
+            resourceDTO.setUnitsAvailable(resource.getUnitsAvailable());
+            resourceDTO.setUnitsOwed(resource.getUnitsOwed());
+            resourceDTO.setVersion(resource.getVersion());
+            return resourceDTO;
+        };
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ResourceMapperBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,43 @@
+package com.santiagoposada.libraryreactive.mapper;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.santiagoposada.libraryreactive.dto.ResourceDTO;
+import com.santiagoposada.libraryreactive.entity.Resource;
+
+public class ResourceMapperTest {
+
+    private final ResourceMapper resourceMapper = new ResourceMapper();
+
+    @Test
+    void testFromResourceEntityToDTO_mapsOnlyRequestedFields() {
+        // Arrange
+        Resource resource = new Resource("1", "Nombre", "Area tematica", "Tipo", LocalDate.parse("2020-01-10"), 1, 4);
+
+        // Act
+        ResourceDTO resourceDTO = resourceMapper.fromResourceEntityToDTO(Set.of("id", "name", "unitsAvailable"))
+                .apply(resource);
+
+        // Assert
+        Assertions.assertEquals("1", resourceDTO.getId());
+        Assertions.assertEquals("Nombre", resourceDTO.getName());
+        Assertions.assertEquals(4, resourceDTO.getUnitsAvailable());
+        Assertions.assertNull(resourceDTO.getCategory());
+        Assertions.assertNull(resourceDTO.getLastBorrow());
+        Assertions.assertNull(resourceDTO.getUnitsOwed());
+    }
+
+    @Test
+    void testMappers_areSharedAcrossCalls() {
+        // Assert
+        Assertions.assertSame(resourceMapper.fromResourceEntityToDTO(), resourceMapper.fromResourceEntityToDTO());
+        Assertions.assertSame(resourceMapper.fromResourceEntityToDTO(), resourceMapper.fromResourceEntityToDTO(null));
+        Assertions.assertSame(resourceMapper.fromResourceDTOtoEntity(), resourceMapper.fromResourceDTOtoEntity());
+        Assertions.assertSame(resourceMapper.fromResourceEntityToDTO(Set.of("id", "name")),
+                resourceMapper.fromResourceEntityToDTO(Set.of("name", "id")));
+    }
+}
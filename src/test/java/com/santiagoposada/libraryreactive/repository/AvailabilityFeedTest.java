@@ -0,0 +1,186 @@
+package com.santiagoposada.libraryreactive.repository;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.AdditionalAnswers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import com.santiagoposada.libraryreactive.dto.AvailabilityEventDTO;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoSocketReadException;
+import com.mongodb.ServerAddress;
+import com.santiagoposada.libraryreactive.entity.Resource;
+import com.santiagoposada.libraryreactive.entity.ResourceShard;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+
+public class AvailabilityFeedTest {
+
+    private final ResourceRepository resourceRepository = Mockito.mock(ResourceRepository.class);
+    private final ShardedCounters shardedCounters = Mockito.mock(ShardedCounters.class);
+    private final WriteBehindCounters writeBehindCounters = Mockito.mock(WriteBehindCounters.class);
+    private final ReactiveMongoTemplate mongoTemplate = Mockito.mock(ReactiveMongoTemplate.class);
+
+    private AvailabilityFeed availabilityFeed;
+
+    @BeforeEach
+    void setUp() {
+        availabilityFeed = feed(false);
+        Mockito.when(shardedCounters.overlay(ArgumentMatchers.any()))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        Mockito.when(writeBehindCounters.overlay(ArgumentMatchers.any())).thenAnswer(AdditionalAnswers.returnsFirstArg());
+    }
+
+    @Test
+    void testWatch_emitsSnapshotThenChanges() {
+        // Arrange
+        Mockito.when(resourceRepository.findById("1")).thenReturn(Mono.just(resource("1", 3, 0)));
+
+        // Act & Assert
+        StepVerifier.create(availabilityFeed.watch(Set.of("1")))
+                .expectNext(new AvailabilityEventDTO("1", 3, 0))
+                .then(() -> {
+                    availabilityFeed.changed(resource("1", 3, 0));
+                    availabilityFeed.changed(resource("2", 0, 1));
+                    availabilityFeed.changed(resource("1", 2, 1));
+                    availabilityFeed.changed(resource("1", 2, 1));
+                })
+                .expectNext(new AvailabilityEventDTO("1", 2, 1))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void testWatch_dropsChangesOlderThanThePublishedOne() {
+        // Arrange
+        Mockito.when(resourceRepository.findById("1")).thenReturn(Mono.just(resource("1", 3, 0, 4L)));
+
+        // Act & Assert
+        StepVerifier.create(availabilityFeed.watch(Set.of("1")))
+                .expectNext(new AvailabilityEventDTO("1", 3, 0))
+                .then(() -> {
+                    availabilityFeed.changed(resource("1", 1, 2, 6L));
+                    availabilityFeed.changed(resource("1", 2, 1, 5L));
+                    availabilityFeed.changed(resource("1", 0, 3, 6L));
+                })
+                .expectNext(new AvailabilityEventDTO("1", 1, 2))
+                .expectNext(new AvailabilityEventDTO("1", 0, 3))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void testWatch_keepsTheLatestChangeForASlowWatcher() {
+        // Arrange
+        Mockito.when(resourceRepository.findById("1")).thenReturn(Mono.just(resource("1", 3, 0)));
+
+        // Act & Assert
+        StepVerifier.create(availabilityFeed.watch(Set.of("1")), 1)
+                .expectNext(new AvailabilityEventDTO("1", 3, 0))
+                .then(() -> {
+                    availabilityFeed.changed(resource("1", 2, 1));
+                    availabilityFeed.changed(resource("1", 1, 2));
+                    availabilityFeed.changed(resource("1", 0, 3));
+                })
+                .thenRequest(2)
+                .expectNext(new AvailabilityEventDTO("1", 2, 1))
+                .expectNext(new AvailabilityEventDTO("1", 0, 3))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void testChanged_readsOnlyWatchedIds() {
+        // Act
+        StepVerifier.create(availabilityFeed.changed("1")).verifyComplete();
+
+        // Assert
+        Mockito.verify(resourceRepository, Mockito.never()).findById(ArgumentMatchers.anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testWatchChangeStream_reopensAfterTheLastEvent() {
+        // Arrange
+        BsonDocument resumeToken = new BsonDocument("_data", new BsonString("8263A1"));
+        ChangeStreamEvent<Document> event = Mockito.mock(ChangeStreamEvent.class);
+        Mockito.when(event.getResumeToken()).thenReturn(resumeToken);
+        Mockito.when(mongoTemplate.changeStream(isNull(), isNull(), any(ChangeStreamOptions.class), eq(Document.class)))
+                .thenReturn(Flux.just(event).concatWith(Flux.error(new MongoSocketReadException("Election",
+                        new ServerAddress()))))
+                .thenReturn(Flux.never());
+        AvailabilityFeed feed = feed(true);
+
+        // Act
+        feed.watchChangeStream();
+
+        // Assert
+        ArgumentCaptor<ChangeStreamOptions> options = ArgumentCaptor.forClass(ChangeStreamOptions.class);
+        Mockito.verify(mongoTemplate, Mockito.timeout(1000).times(2))
+                .changeStream(isNull(), isNull(), options.capture(), eq(Document.class));
+        Assertions.assertEquals(Optional.empty(), options.getAllValues().get(0).getResumeToken());
+        Assertions.assertEquals(Optional.of(resumeToken), options.getAllValues().get(1).getResumeToken());
+        feed.stop();
+    }
+
+    @Test
+    void testWatchChangeStream_givesUpWithoutReplicaSet() {
+        // Arrange
+        BsonDocument response = new BsonDocument("ok", new BsonInt32(0))
+                .append("code", new BsonInt32(40573))
+                .append("errmsg", new BsonString("The $changeStream stage is only supported on replica sets"));
+        Mockito.when(mongoTemplate.changeStream(isNull(), isNull(), any(ChangeStreamOptions.class), eq(Document.class)))
+                .thenReturn(Flux.error(new MongoCommandException(response, new ServerAddress())));
+        AvailabilityFeed feed = feed(true);
+
+        // Act
+        feed.watchChangeStream();
+
+        // Assert
+        Mockito.verify(mongoTemplate, Mockito.after(100).times(1))
+                .changeStream(isNull(), isNull(), any(ChangeStreamOptions.class), eq(Document.class));
+        feed.stop();
+    }
+
+    private AvailabilityFeed feed(boolean changeStreams) {
+        Mockito.when(mongoTemplate.getCollectionName(Resource.class)).thenReturn("resource");
+        Mockito.when(mongoTemplate.getCollectionName(ResourceShard.class)).thenReturn("resourceShard");
+        return new AvailabilityFeed(mongoTemplate, resourceRepository, shardedCounters, writeBehindCounters,
+                changeStreams, Duration.ofMillis(1), Duration.ofMillis(10));
+    }
+
+    private Resource resource(String id, int unitsAvailable, int unitsOwed) {
+        return resource(id, unitsAvailable, unitsOwed, null);
+    }
+
+    private Resource resource(String id, int unitsAvailable, int unitsOwed, Long version) {
+        Resource resource = new Resource();
+        resource.setVersion(version);
+        resource.setId(id);
+        resource.setName("Resource " + id);
+        resource.setUnitsAvailable(unitsAvailable);
+        resource.setUnitsOwed(unitsOwed);
+        return resource;
+    }
+}
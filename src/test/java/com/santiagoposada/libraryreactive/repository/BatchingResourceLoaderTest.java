@@ -0,0 +1,92 @@
+package com.santiagoposada.libraryreactive.repository;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import com.santiagoposada.libraryreactive.entity.Resource;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class BatchingResourceLoaderTest {
+
+    private final ResourceRepository resourceRepository = Mockito.mock(ResourceRepository.class);
+
+    private BatchingResourceLoader resourceLoader;
+
+    @AfterEach
+    void tearDown() {
+        resourceLoader.stop();
+    }
+
+    @Test
+    void testFindById_batchesConcurrentIds() {
+        // Arrange
+        resourceLoader = new BatchingResourceLoader(resourceRepository, true, Duration.ofMillis(50), 100);
+        Resource first = resource("1");
+        Resource second = resource("2");
+
+        Mockito.when(resourceRepository.findAllById(ArgumentMatchers.<Iterable<String>>any()))
+                .thenReturn(Flux.just(first, second));
+
+        // Act
+        Mono<List<Resource>> loaded = Flux.merge(
+                resourceLoader.findById("1"),
+                resourceLoader.findById("2"),
+                resourceLoader.findById("1"),
+                resourceLoader.findById("3")).collectList();
+
+        // Assert
+        StepVerifier.create(loaded)
+                .assertNext(resources -> Assertions.assertEquals(3, resources.size()))
+                .verifyComplete();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Iterable<String>> ids = ArgumentCaptor.forClass(Iterable.class);
+        Mockito.verify(resourceRepository, Mockito.times(1)).findAllById(ids.capture());
+        Assertions.assertEquals(List.of("1", "2", "3"), ids.getValue());
+        Mockito.verify(resourceRepository, Mockito.never()).findById(ArgumentMatchers.anyString());
+    }
+
+    @Test
+    void testFindById_propagatesBatchError() {
+        // Arrange
+        resourceLoader = new BatchingResourceLoader(resourceRepository, true, Duration.ofMillis(1), 100);
+
+        Mockito.when(resourceRepository.findAllById(ArgumentMatchers.<Iterable<String>>any()))
+                .thenReturn(Flux.error(new IllegalStateException("down")));
+
+        // Act & Assert
+        StepVerifier.create(resourceLoader.findById("1")).verifyError(IllegalStateException.class);
+    }
+
+    @Test
+    void testFindById_disabledDelegates() {
+        // Arrange
+        resourceLoader = new BatchingResourceLoader(resourceRepository, false, Duration.ofMillis(1), 100);
+        Resource resource = resource("1");
+
+        Mockito.when(resourceRepository.findById("1")).thenReturn(Mono.just(resource));
+
+        // Act & Assert
+        StepVerifier.create(resourceLoader.findById("1")).expectNext(resource).verifyComplete();
+        Mockito.verify(resourceRepository, Mockito.never()).findAllById(ArgumentMatchers.<Iterable<String>>any());
+    }
+
+    private Resource resource(String id) {
+        Resource resource = new Resource();
+        resource.setId(id);
+        resource.setName("Resource " + id);
+        resource.setUnitsAvailable(1);
+        resource.setUnitsOwed(0);
+        return resource;
+    }
+}
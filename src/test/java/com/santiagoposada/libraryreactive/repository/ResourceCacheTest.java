@@ -0,0 +1,109 @@
+package com.santiagoposada.libraryreactive.repository;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.santiagoposada.libraryreactive.entity.Resource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+public class ResourceCacheTest {
+
+    private ResourceRepository resourceRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ResourceCache resourceCache;
+
+    @BeforeEach
+    void setUp() {
+        resourceRepository = Mockito.mock(ResourceRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        resourceCache = new ResourceCache(new BatchingResourceLoader(resourceRepository, false, Duration.ZERO, 1), Mockito.mock(ResourceJsonCache.class), meterRegistry, 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void testFindById_readsThrough() {
+        // Arrange
+        Resource resource = resource(1L, 10);
+
+        Mockito.when(resourceRepository.findById(resource.getId())).thenReturn(Mono.just(resource));
+
+        // Act
+        StepVerifier.create(resourceCache.findById(resource.getId())).expectNext(resource).verifyComplete();
+        StepVerifier.create(resourceCache.findById(resource.getId())).expectNext(resource).verifyComplete();
+
+        // Assert
+        Mockito.verify(resourceRepository, Mockito.times(1)).findById(resource.getId());
+        Assertions.assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void testPut_keepsNewerVersion() {
+        // Arrange
+        Resource newer = resource(2L, 9);
+        Resource older = resource(1L, 10);
+
+        // Act
+        resourceCache.put(newer);
+        resourceCache.put(older);
+
+        // Assert
+        StepVerifier.create(resourceCache.findById(newer.getId())).expectNext(newer).verifyComplete();
+        Mockito.verify(resourceRepository, Mockito.never()).findById(newer.getId());
+    }
+
+    @Test
+    void testInvalidate() {
+        // Arrange
+        Resource resource = resource(1L, 10);
+
+        Mockito.when(resourceRepository.findById(resource.getId())).thenReturn(Mono.empty());
+        resourceCache.put(resource);
+
+        // Act
+        resourceCache.invalidate(resource.getId());
+
+        // Assert
+        StepVerifier.create(resourceCache.findById(resource.getId())).verifyComplete();
+    }
+
+    @Test
+    void testInvalidate_duringLoadKeepsLoadedResourceOutOfCache() {
+        // Arrange
+        Resource stale = resource(1L, 10);
+        Resource written = resource(2L, 9);
+        Sinks.One<Resource> slowRead = Sinks.one();
+
+        Mockito.when(resourceRepository.findById(stale.getId())).thenReturn(slowRead.asMono(), Mono.just(written));
+
+        // Act
+        StepVerifier.create(resourceCache.findById(stale.getId()))
+                .then(() -> {
+                    // A write lands while the read is still in flight
+                    resourceCache.invalidate(stale.getId());
+                    slowRead.tryEmitValue(stale);
+                })
+                .expectNext(stale)
+                .verifyComplete();
+
+        // Assert
+        StepVerifier.create(resourceCache.findById(stale.getId())).expectNext(written).verifyComplete();
+        Mockito.verify(resourceRepository, Mockito.times(2)).findById(stale.getId());
+    }
+
+    private Resource resource(Long version, int unitsAvailable) {
+        Resource resource = new Resource("1233435ff", "Nombre #1", "Area tematica #1", "Tipo #1",
+                LocalDate.parse("2020-01-10"), 5, unitsAvailable);
+        resource.setVersion(version);
+        return resource;
+    }
+}
@@ -0,0 +1,72 @@
+package com.santiagoposada.libraryreactive.repository;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+
+import com.santiagoposada.libraryreactive.entity.Resource;
+
+/**
+ * Decoding one Resource from its wire bytes: the hand-written codec against DocumentCodec plus the
+ * mapping converter, which is what the template does. Not part of the test run: after
+ * {@code mvn test-compile}, run its main with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResourceCodecBenchmark {
+
+    private final ResourceCodec resourceCodec = new ResourceCodec();
+    private final DocumentCodec documentCodec = new DocumentCodec();
+    private final MappingMongoConverter converter = ResourceCodecTest.converter();
+    private final DecoderContext decoderContext = DecoderContext.builder().build();
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        Document document = new Document();
+        converter.write(ResourceCodecTest.resource("5f8d0d55b54764421b7156c9"), document);
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        documentCodec.encode(new BsonBinaryWriter(buffer), document, EncoderContext.builder().build());
+        bytes = buffer.toByteArray();
+    }
+
+    @Benchmark
+    public Resource resourceCodec() {
+        return resourceCodec.decode(new BsonBinaryReader(ByteBuffer.wrap(bytes)), decoderContext);
+    }
+
+    @Benchmark
+    public Resource mappingConverter() {
+        Document document = documentCodec.decode(new BsonBinaryReader(ByteBuffer.wrap(bytes)), decoderContext);
+        return converter.read(Resource.class, document);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ResourceCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,114 @@
+package com.santiagoposada.libraryreactive.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import com.mongodb.MongoClientSettings;
+import com.santiagoposada.libraryreactive.entity.Resource;
+
+public class ResourceCodecTest {
+
+    private final ResourceCodec resourceCodec = new ResourceCodec();
+    private final MappingMongoConverter converter = converter();
+
+    @Test
+    void testEncode_matchesMappingConverter() {
+        // Arrange
+        Resource resource = resource("5f8d0d55b54764421b7156c9");
+
+        // Act
+        BsonDocument encoded = encode(resource);
+
+        // Assert
+        Assertions.assertEquals(converted(resource), encoded);
+    }
+
+    @Test
+    void testDecode_readsMappingConverterOutput() {
+        // Arrange
+        Resource resource = resource("5f8d0d55b54764421b7156c9");
+        resource.setShards(4);
+
+        // Act
+        // Documents written before bulk updates stopped stamping a token still carry it
+        Resource decoded = decode(converted(resource).append("lastBulkOperation", new BsonString("token")));
+
+        // Assert
+        Assertions.assertEquals(resource, decoded);
+        Assertions.assertEquals(resource, converter.read(Resource.class, document(encode(resource))));
+    }
+
+    @Test
+    void testDecode_keepsPlainStringIdsAndMissingFields() {
+        // Arrange
+        BsonDocument projected = new BsonDocument("_id", new BsonString("isbn-1"))
+                .append("name", new BsonString("Nombre"))
+                .append("unitsAvailable", new BsonInt64(3));
+
+        // Act
+        Resource decoded = decode(projected);
+
+        // Assert
+        Assertions.assertEquals("isbn-1", decoded.getId());
+        Assertions.assertEquals("Nombre", decoded.getName());
+        Assertions.assertEquals(3, decoded.getUnitsAvailable());
+        Assertions.assertNull(decoded.getCategory());
+        Assertions.assertNull(decoded.getLastBorrow());
+        Assertions.assertEquals(converter.read(Resource.class, new Document("_id", "isbn-1")
+                .append("name", "Nombre").append("unitsAvailable", 3)), decoded);
+    }
+
+    private BsonDocument encode(Resource resource) {
+        BsonDocument document = new BsonDocument();
+        resourceCodec.encode(new BsonDocumentWriter(document), resource, EncoderContext.builder().build());
+        return document;
+    }
+
+    private Resource decode(BsonDocument document) {
+        return resourceCodec.decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+    }
+
+    private Document document(BsonDocument document) {
+        return new DocumentCodec().decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+    }
+
+    private BsonDocument converted(Resource resource) {
+        Document document = new Document();
+        converter.write(resource, document);
+        return document.toBsonDocument(Document.class, MongoClientSettings.getDefaultCodecRegistry());
+    }
+
+    static MappingMongoConverter converter() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+
+    static Resource resource(String id) {
+        Resource resource = new Resource(id, "Cien anos de soledad", "Novela", "Libro",
+                LocalDate.parse("2021-03-14"), 2, 5);
+        resource.setVersion(7L);
+        return resource;
+    }
+}
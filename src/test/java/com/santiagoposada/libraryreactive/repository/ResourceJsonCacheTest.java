@@ -0,0 +1,61 @@
+package com.santiagoposada.libraryreactive.repository;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.santiagoposada.libraryreactive.dto.ResourceDTO;
+import com.santiagoposada.libraryreactive.entity.Resource;
+import com.santiagoposada.libraryreactive.mapper.ResourceMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ResourceJsonCacheTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private final ResourceJsonCache resourceJsonCache = new ResourceJsonCache(objectMapper, new SimpleMeterRegistry(), 100);
+
+    @Test
+    void testJson_reusesBytesWhileResourceIsUnchanged() throws IOException {
+        // Arrange
+        Resource resource = resource(1L, 10);
+
+        // Act
+        byte[] first = resourceJsonCache.json(resource);
+        byte[] second = resourceJsonCache.json(resource(1L, 10));
+
+        // Assert
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(ResourceMapper.toDTO(resource), objectMapper.readValue(first, ResourceDTO.class));
+    }
+
+    @Test
+    void testJson_rewritesChangedOrInvalidatedResource() throws IOException {
+        // Arrange
+        byte[] cached = resourceJsonCache.json(resource(1L, 10));
+
+        // Act
+        byte[] changed = resourceJsonCache.json(resource(2L, 9));
+        resourceJsonCache.invalidate("1");
+        byte[] invalidated = resourceJsonCache.json(resource(2L, 9));
+
+        // Assert
+        Assertions.assertNotSame(cached, changed);
+        Assertions.assertEquals(9, objectMapper.readValue(changed, ResourceDTO.class).getUnitsAvailable());
+        Assertions.assertNotSame(changed, invalidated);
+    }
+
+    private static Resource resource(Long version, int unitsAvailable) {
+        Resource resource = new Resource("1", "Nombre", "Area tematica", "Tipo", LocalDate.parse("2020-01-10"), 1,
+                unitsAvailable);
+        resource.setVersion(version);
+        return resource;
+    }
+}
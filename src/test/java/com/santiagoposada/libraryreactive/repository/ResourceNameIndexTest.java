@@ -0,0 +1,100 @@
+package com.santiagoposada.libraryreactive.repository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.santiagoposada.libraryreactive.entity.Resource;
+
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
+public class ResourceNameIndexTest {
+
+    private ReactiveMongoTemplate mongoTemplate;
+    private ResourceNameIndex resourceNameIndex;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = Mockito.mock(ReactiveMongoTemplate.class);
+        resourceNameIndex = new ResourceNameIndex(mongoTemplate, Duration.ofMinutes(10));
+        resourceNameIndex.put(resource("1", "Cien años de soledad"));
+        resourceNameIndex.put(resource("2", "El amor en los tiempos del cólera"));
+        resourceNameIndex.put(resource("3", "Soldados de Salamina"));
+        resourceNameIndex.put(resource("4", "Años de peregrinación"));
+    }
+
+    @Test
+    void testSearch_ranksPrefixFirst() {
+        Assertions.assertEquals(List.of("4", "1"), ids(resourceNameIndex.search("AÑOS", 10)));
+    }
+
+    @Test
+    void testSearch_shortPrefixAndLimit() {
+        Assertions.assertEquals(List.of("3"), ids(resourceNameIndex.search("so", 1)));
+        Assertions.assertEquals(List.of("2"), ids(resourceNameIndex.search("colera tiem", 10)));
+        Assertions.assertTrue(resourceNameIndex.search("xyz", 10).isEmpty());
+    }
+
+    @Test
+    void testPutAndRemove_keepIndexCurrent() {
+        // Act
+        resourceNameIndex.put(resource("3", "Patria"));
+        resourceNameIndex.remove("1");
+
+        // Assert
+        Assertions.assertTrue(resourceNameIndex.search("soledad", 10).isEmpty());
+        Assertions.assertTrue(resourceNameIndex.search("salamina", 10).isEmpty());
+        Assertions.assertEquals(List.of("3"), ids(resourceNameIndex.search("patr", 10)));
+        Assertions.assertEquals(3, resourceNameIndex.size());
+    }
+
+    @Test
+    void testRefresh_keepsLocalChangesMadeWhileReading() {
+        // Arrange
+        Sinks.Many<Resource> read = Sinks.many().unicast().onBackpressureBuffer();
+        Mockito.when(mongoTemplate.find(any(Query.class), eq(Resource.class))).thenReturn(read.asFlux());
+
+        // Act
+        StepVerifier.create(resourceNameIndex.refresh())
+                .then(() -> {
+                    read.tryEmitNext(resource("1", "Cien años de soledad"));
+                    // Created and deleted here after the read started, which has not seen either yet
+                    resourceNameIndex.put(resource("5", "Patria"));
+                    resourceNameIndex.remove("2");
+                    read.tryEmitNext(resource("2", "El amor en los tiempos del cólera"));
+                    read.tryEmitNext(resource("4", "Años de peregrinación"));
+                    read.tryEmitComplete();
+                })
+                .expectNext(3L)
+                .verifyComplete();
+
+        // Assert
+        Assertions.assertEquals(List.of("5"), ids(resourceNameIndex.search("patria", 10)));
+        Assertions.assertTrue(resourceNameIndex.search("colera", 10).isEmpty());
+        // Deleted elsewhere: missing from the read and not changed here
+        Assertions.assertTrue(resourceNameIndex.search("salamina", 10).isEmpty());
+        Assertions.assertEquals(3, resourceNameIndex.size());
+    }
+
+    private List<String> ids(List<Resource> resources) {
+        return resources.stream().map(Resource::getId).collect(Collectors.toList());
+    }
+
+    private Resource resource(String id, String name) {
+        Resource resource = new Resource();
+        resource.setId(id);
+        resource.setName(name);
+        return resource;
+    }
+}
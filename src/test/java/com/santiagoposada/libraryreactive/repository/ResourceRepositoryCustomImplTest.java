@@ -0,0 +1,109 @@
+package com.santiagoposada.libraryreactive.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.santiagoposada.libraryreactive.entity.Resource;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+
+public class ResourceRepositoryCustomImplTest {
+
+    private final MappingMongoConverter converter = ResourceCodecTest.converter();
+    private final ReactiveMongoTemplate counters = template();
+    private final ResourceRepositoryCustomImpl repository = new ResourceRepositoryCustomImpl(
+            template(), template(), counters);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testBorrowUnits_takesWhatEachIdHolds() {
+        // Arrange
+        MongoCollection<Document> collection = Mockito.mock(MongoCollection.class);
+        Mockito.when(counters.getCollectionName(Resource.class)).thenReturn("resource");
+        Mockito.when(counters.getCollection("resource")).thenReturn(Mono.just(collection));
+        Mockito.when(collection.findOneAndUpdate(any(Bson.class), anyList(), any(FindOneAndUpdateOptions.class)))
+                .thenAnswer(invocation -> {
+                    Object id = invocation.<Document>getArgument(0).get("_id");
+                    // Only two of the three copies of "1" are left, "3" does not exist
+                    return "1".equals(id) ? Mono.just(new Document("_id", "1").append("unitsAvailable", 2))
+                            : "2".equals(id) ? Mono.just(new Document("_id", "2").append("unitsAvailable", 0))
+                            : Mono.empty();
+                });
+
+        // Act
+        Mono<Map<String, Integer>> result = repository.borrowUnits(List.of("1", "2", "3", "1", "1"), LocalDate.now());
+
+        // Assert
+        StepVerifier.create(result)
+                .expectNext(Map.of("1", 2, "2", 0))
+                .verifyComplete();
+        // One atomic update per distinct id
+        Mockito.verify(collection, Mockito.times(3))
+                .findOneAndUpdate(any(Bson.class), anyList(), any(FindOneAndUpdateOptions.class));
+    }
+
+    @Test
+    void testPageQuery_afterStringIdStillReachesObjectIds() {
+        // Act: client-supplied string ids sort before every ObjectId
+        Document filter = mapped(repository.pageQuery(Criteria.where("type").is("Tipo"), "legacy-2", null));
+
+        // Assert
+        Document after = filter.getList("$and", Document.class).get(1);
+        List<Document> branches = after.getList("$or", Document.class);
+        Assertions.assertEquals(new Document("_id", new Document("$gt", "legacy-2")), branches.get(0));
+        Assertions.assertEquals(new Document("_id", new Document("$type", List.of("objectId"))), branches.get(1));
+        Assertions.assertEquals(new Document("type", "Tipo"), filter.getList("$and", Document.class).get(0));
+    }
+
+    @Test
+    void testPageQuery_afterObjectIdComparesObjectIds() {
+        // Arrange
+        ObjectId last = new ObjectId();
+
+        // Act
+        Document filter = mapped(repository.pageQuery(new Criteria(), last.toHexString(), null));
+
+        // Assert
+        Assertions.assertEquals(new Document("_id", new Document("$gt", last)),
+                filter.getList("$and", Document.class).get(1));
+    }
+
+    @Test
+    void testPageQuery_firstPage() {
+        // Act
+        Document filter = mapped(repository.pageQuery(Criteria.where("category").is("Area"), null, null));
+
+        // Assert
+        Assertions.assertEquals(new Document("category", "Area"), filter);
+    }
+
+    private Document mapped(Query query) {
+        return new QueryMapper(converter).getMappedObject(query.getQueryObject(),
+                converter.getMappingContext().getRequiredPersistentEntity(Resource.class));
+    }
+
+    private ReactiveMongoTemplate template() {
+        ReactiveMongoTemplate template = Mockito.mock(ReactiveMongoTemplate.class);
+        Mockito.when(template.getConverter()).thenReturn(converter);
+        return template;
+    }
+}
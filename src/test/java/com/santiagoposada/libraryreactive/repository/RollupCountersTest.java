@@ -0,0 +1,170 @@
+package com.santiagoposada.libraryreactive.repository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.santiagoposada.libraryreactive.dto.StatsDTO;
+import com.santiagoposada.libraryreactive.entity.AvailabilityRollup;
+import com.santiagoposada.libraryreactive.entity.Resource;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+
+public class RollupCountersTest {
+
+    private final ReactiveMongoTemplate mongoTemplate = Mockito.mock(ReactiveMongoTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final MongoCollection<Document> collection = Mockito.mock(MongoCollection.class);
+    private final ResourceRepository resourceRepository = Mockito.mock(ResourceRepository.class);
+    private final RollupCounters rollupCounters = new RollupCounters(mongoTemplate, resourceRepository,
+            Duration.ofSeconds(1), false);
+
+    @BeforeEach
+    void setUp() {
+        Mockito.when(mongoTemplate.getCollectionName(AvailabilityRollup.class)).thenReturn("availabilityRollup");
+        Mockito.when(mongoTemplate.getCollection("availabilityRollup")).thenReturn(Mono.just(collection));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlush_keepsOnlyTheFailedWritesOfAPartialBulk() {
+        // Arrange
+        rollupCounters.added(new Resource("1", "Nombre", "Books", "Novel", null, 1, 3));
+
+        MongoBulkWriteException partial = new MongoBulkWriteException(
+                BulkWriteResult.acknowledged(0, 1, 0, 1, List.of(), List.of()),
+                List.of(new BulkWriteError(11000, "duplicate key", new BsonDocument(), 1)), null, new ServerAddress());
+        Mockito.when(collection.bulkWrite(anyList(), any(BulkWriteOptions.class)))
+                .thenReturn(Mono.error(partial))
+                .thenReturn(Mono.just(BulkWriteResult.acknowledged(0, 1, 0, 1, List.of(), List.of())));
+
+        // Act
+        StepVerifier.create(rollupCounters.flush()).expectError(MongoBulkWriteException.class).verify();
+        StepVerifier.create(rollupCounters.flush()).verifyComplete();
+
+        // Assert
+        ArgumentCaptor<List<WriteModel<Document>>> bulks = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(collection, Mockito.times(2)).bulkWrite(bulks.capture(), any(BulkWriteOptions.class));
+        List<WriteModel<Document>> first = bulks.getAllValues().get(0);
+        List<WriteModel<Document>> retried = bulks.getAllValues().get(1);
+        Assertions.assertEquals(2, first.size());
+        Assertions.assertEquals(1, retried.size());
+        Assertions.assertEquals(((UpdateOneModel<Document>) first.get(1)).getFilter(),
+                ((UpdateOneModel<Document>) retried.get(0)).getFilter());
+        Assertions.assertEquals(((UpdateOneModel<Document>) first.get(1)).getUpdate(),
+                ((UpdateOneModel<Document>) retried.get(0)).getUpdate());
+    }
+
+    @Test
+    void testFlush_keepsEveryChangeWhenTheBulkFails() {
+        // Arrange
+        rollupCounters.added(new Resource("1", "Nombre", "Books", "Novel", null, 1, 3));
+
+        Mockito.when(collection.bulkWrite(anyList(), any(BulkWriteOptions.class)))
+                .thenReturn(Mono.error(new IllegalStateException("timed out")))
+                .thenReturn(Mono.just(BulkWriteResult.acknowledged(0, 2, 0, 2, List.of(), List.of())));
+
+        // Act
+        StepVerifier.create(rollupCounters.flush()).expectError(IllegalStateException.class).verify();
+        StepVerifier.create(rollupCounters.flush()).verifyComplete();
+
+        // Assert
+        Mockito.verify(collection, Mockito.times(2)).bulkWrite(Mockito.argThat(writes -> writes.size() == 2),
+                any(BulkWriteOptions.class));
+    }
+
+    @Test
+    void testRebuild_waitsForTheRunningFlushAndDropsWhatWasPending() {
+        // Arrange
+        rollupCounters.added(new Resource("1", "Nombre", "Books", "Novel", null, 1, 3));
+
+        Sinks.One<BulkWriteResult> flushed = Sinks.one();
+        Mockito.when(collection.bulkWrite(anyList(), any(BulkWriteOptions.class))).thenReturn(flushed.asMono());
+        Mockito.when(resourceRepository.aggregateStats(anyList())).thenReturn(Flux.just(new StatsDTO(null, null, 1L, 3L, 1L)));
+        Mockito.when(mongoTemplate.remove(any(Query.class), eq(AvailabilityRollup.class))).thenReturn(Mono.empty());
+        Mockito.when(mongoTemplate.find(any(Query.class), eq(AvailabilityRollup.class))).thenReturn(Flux.empty());
+
+        // Act
+        AtomicBoolean flushDone = new AtomicBoolean();
+        rollupCounters.flush().doOnSuccess(done -> flushDone.set(true)).subscribe();
+        Mono<Long> rebuild = rollupCounters.rebuild();
+        rollupCounters.added(new Resource("2", "Nombre", "Books", "Novel", null, 0, 2));
+
+        // Assert
+        StepVerifier.create(rebuild)
+                .then(() -> Mockito.verify(resourceRepository, Mockito.never()).aggregateStats(anyList()))
+                .then(() -> flushed.tryEmitValue(BulkWriteResult.acknowledged(0, 2, 0, 2, List.of(), List.of())))
+                .expectNext(0L)
+                .verifyComplete();
+        Assertions.assertTrue(flushDone.get());
+        Mockito.verify(resourceRepository, Mockito.times(2)).aggregateStats(anyList());
+        // The change recorded before the rebuild started is in the aggregation, it is not flushed again
+        StepVerifier.create(rollupCounters.flush()).verifyComplete();
+        Mockito.verify(collection, Mockito.times(1)).bulkWrite(anyList(), any(BulkWriteOptions.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRebuild_incrementsTheDifferenceWithTheStoredTotals() {
+        // Arrange
+        AvailabilityRollup books = rollup("category", "Books", 2L, 5L, 1L);
+        AvailabilityRollup gone = rollup("type", "Old", 1L, 1L, 0L);
+        Mockito.when(mongoTemplate.find(any(Query.class), eq(AvailabilityRollup.class)))
+                .thenReturn(Flux.just(books), Flux.just(gone));
+        Mockito.when(resourceRepository.aggregateStats(List.of("category")))
+                .thenReturn(Flux.just(new StatsDTO("Books", null, 3L, 4L, 2L)));
+        Mockito.when(resourceRepository.aggregateStats(List.of("type"))).thenReturn(Flux.empty());
+        Mockito.when(collection.bulkWrite(anyList(), any(BulkWriteOptions.class)))
+                .thenReturn(Mono.just(BulkWriteResult.acknowledged(0, 1, 0, 1, List.of(), List.of())));
+        Mockito.when(mongoTemplate.remove(any(Query.class), eq(AvailabilityRollup.class))).thenReturn(Mono.empty());
+
+        // Act
+        StepVerifier.create(rollupCounters.rebuild()).expectNext(1L).verifyComplete();
+
+        // Assert
+        ArgumentCaptor<List<WriteModel<Document>>> bulks = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(collection, Mockito.times(2)).bulkWrite(bulks.capture(), any(BulkWriteOptions.class));
+        Assertions.assertEquals(new Document("resources", 1L).append("unitsAvailable", -1L).append("unitsOwed", 1L),
+                ((Document) ((UpdateOneModel<Document>) bulks.getAllValues().get(0).get(0)).getUpdate()).get("$inc"));
+        Assertions.assertEquals(new Document("resources", -1L).append("unitsAvailable", -1L).append("unitsOwed", 0L),
+                ((Document) ((UpdateOneModel<Document>) bulks.getAllValues().get(1).get(0)).getUpdate()).get("$inc"));
+        Mockito.verify(mongoTemplate, Mockito.never()).save(any(AvailabilityRollup.class));
+    }
+
+    private static AvailabilityRollup rollup(String dimension, String key, Long resources, Long unitsAvailable,
+                                             Long unitsOwed) {
+        AvailabilityRollup rollup = new AvailabilityRollup();
+        rollup.setId(AvailabilityRollup.rollupId(dimension, key));
+        rollup.setDimension(dimension);
+        rollup.setKey(key);
+        rollup.setResources(resources);
+        rollup.setUnitsAvailable(unitsAvailable);
+        rollup.setUnitsOwed(unitsOwed);
+        return rollup;
+    }
+}
@@ -0,0 +1,169 @@
+package com.santiagoposada.libraryreactive.repository;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import com.santiagoposada.libraryreactive.entity.Resource;
+import com.santiagoposada.libraryreactive.entity.ResourceShard;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
+public class ShardedCountersTest {
+
+    private ReactiveMongoTemplate mongoTemplate;
+
+    // Two instances of the service sharing one database
+    private ShardedCounters first;
+    private ShardedCounters second;
+
+    private Resource sharded;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = Mockito.mock(ReactiveMongoTemplate.class);
+        first = new ShardedCounters(mongoTemplate, Duration.ofMinutes(1));
+        second = new ShardedCounters(mongoTemplate, Duration.ofMinutes(1));
+
+        sharded = new Resource("1", "Nombre", "Area tematica", "Tipo", LocalDate.parse("2020-01-10"), 0, 0);
+        sharded.setShards(2);
+        Mockito.when(mongoTemplate.find(any(Query.class), eq(Resource.class))).thenReturn(Flux.just(sharded));
+        first.loadShardedResources();
+        second.loadShardedResources();
+    }
+
+    @Test
+    void testBorrowUnit_seesDemotionOnAnotherInstance() {
+        // Arrange
+        Resource demoted = new Resource("1", "Nombre", "Area tematica", "Tipo", LocalDate.parse("2020-01-10"), 3, 7);
+
+        Mockito.when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(Resource.class)))
+                .thenReturn(Mono.just(sharded));
+        Mockito.when(mongoTemplate.findAndRemove(any(Query.class), eq(ResourceShard.class))).thenReturn(Mono.empty());
+        Mockito.when(mongoTemplate.findById("1", Resource.class)).thenReturn(Mono.just(demoted));
+        Mockito.when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(ResourceShard.class))).thenReturn(Mono.empty());
+        StepVerifier.create(first.demote("1")).expectNext(demoted).verifyComplete();
+
+        // Act
+        Mono<Resource> result = second.borrowUnit("1", LocalDate.now());
+
+        // Assert
+        Assertions.assertTrue(second.isSharded("1"));
+        StepVerifier.create(result).verifyComplete();
+        Assertions.assertFalse(first.isSharded("1"));
+        Assertions.assertFalse(second.isSharded("1"));
+    }
+
+    @Test
+    void testBorrowUnit_addsTheChangedShardToTheOthersLastRead() {
+        // Arrange
+        ResourceShard shard0 = new ResourceShard("1", 0, 1, 4);
+        ResourceShard shard1 = new ResourceShard("1", 1, 2, 3);
+        ResourceShard borrowed = new ResourceShard("1", 1, 3, 2);
+        Mockito.when(mongoTemplate.findById("1", Resource.class)).thenReturn(Mono.just(sharded));
+        Mockito.when(mongoTemplate.find(any(Query.class), eq(ResourceShard.class))).thenReturn(Flux.just(shard0, shard1));
+        Mockito.when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(ResourceShard.class))).thenReturn(Mono.just(borrowed));
+        StepVerifier.create(first.overlay(sharded))
+                .expectNextMatches(total -> total.getUnitsAvailable() == 7 && total.getUnitsOwed() == 3)
+                .verifyComplete();
+
+        // Act
+        Mono<Resource> result = first.borrowUnit("1", LocalDate.now());
+
+        // Assert
+        StepVerifier.create(result)
+                .expectNextMatches(total -> total.getUnitsAvailable() == 6 && total.getUnitsOwed() == 4)
+                .verifyComplete();
+        StepVerifier.create(first.overlay(sharded))
+                .expectNextMatches(total -> total.getUnitsAvailable() == 6 && total.getUnitsOwed() == 4)
+                .verifyComplete();
+        Mockito.verify(mongoTemplate, Mockito.times(1)).find(any(Query.class), eq(ResourceShard.class));
+    }
+
+    @Test
+    void testBorrowUnit_keepsHintWhenShardsAreEmpty() {
+        // Arrange
+        Mockito.when(mongoTemplate.findById("1", Resource.class)).thenReturn(Mono.just(sharded));
+        Mockito.when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(ResourceShard.class))).thenReturn(Mono.empty());
+
+        // Act
+        Mono<Resource> result = second.borrowUnit("1", LocalDate.now());
+
+        // Assert
+        StepVerifier.create(result).verifyComplete();
+        Assertions.assertTrue(second.isSharded("1"));
+    }
+
+    @Test
+    void testBorrowUnit_findsNothingAfterDelete() {
+        // Arrange
+        Mockito.when(mongoTemplate.remove(any(Query.class), eq(ResourceShard.class)))
+                .thenReturn(Mono.just(DeleteResult.acknowledged(2)));
+        Mockito.when(mongoTemplate.findById("1", Resource.class)).thenReturn(Mono.empty());
+        Mockito.when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(ResourceShard.class))).thenReturn(Mono.empty());
+        StepVerifier.create(first.removed(sharded)).verifyComplete();
+
+        // Act
+        Mono<Resource> onDeletingInstance = first.borrowUnit("1", LocalDate.now());
+        Mono<Resource> onOtherInstance = second.borrowUnit("1", LocalDate.now());
+
+        // Assert
+        StepVerifier.create(onDeletingInstance).verifyComplete();
+        StepVerifier.create(onOtherInstance).verifyComplete();
+        Assertions.assertFalse(first.isSharded("1"));
+        Assertions.assertFalse(second.isSharded("1"));
+        Mockito.verify(mongoTemplate).remove(any(Query.class), eq(ResourceShard.class));
+    }
+
+    @Test
+    void testPromote_restoresUnitsWhenShardsCannotBeWritten() {
+        // Arrange
+        Resource plain = new Resource("2", "Nombre", "Area tematica", "Tipo", LocalDate.parse("2020-01-10"), 3, 7);
+        ResourceShard written = new ResourceShard("2", 0, 1, 3);
+
+        Mockito.when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(Resource.class)))
+                .thenReturn(Mono.just(plain));
+        Mockito.doReturn(Flux.error(new DataAccessResourceFailureException("insert failed")))
+                .when(mongoTemplate).insertAll(Mockito.anyCollection());
+        // Only the first shard made it in
+        Mockito.when(mongoTemplate.findAndRemove(any(Query.class), eq(ResourceShard.class)))
+                .thenReturn(Mono.just(written), Mono.empty(), Mono.empty());
+        Mockito.when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Resource.class)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+
+        // Act
+        Mono<Resource> result = first.promote("2", 3);
+
+        // Assert
+        StepVerifier.create(result).expectError(DataAccessResourceFailureException.class).verify();
+        ArgumentCaptor<Update> restore = ArgumentCaptor.forClass(Update.class);
+        Mockito.verify(mongoTemplate).updateFirst(any(Query.class), restore.capture(), eq(Resource.class));
+        Document inc = (Document) restore.getValue().getUpdateObject().get("$inc");
+        Assertions.assertEquals(7, inc.get("unitsAvailable"));
+        Assertions.assertEquals(3, inc.get("unitsOwed"));
+        Assertions.assertTrue(restore.getValue().getUpdateObject().containsKey("$unset"));
+        Assertions.assertFalse(first.isSharded("2"));
+    }
+}
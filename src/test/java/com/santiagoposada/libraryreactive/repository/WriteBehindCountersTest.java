@@ -0,0 +1,140 @@
+package com.santiagoposada.libraryreactive.repository;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+
+import com.santiagoposada.libraryreactive.entity.Resource;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.mockito.ArgumentMatchers.any;
+
+public class WriteBehindCountersTest {
+
+    private ResourceRepository resourceRepository;
+
+    private WriteBehindCounters writeBehindCounters;
+
+    @BeforeEach
+    void setUp() {
+        resourceRepository = Mockito.mock(ResourceRepository.class);
+        writeBehindCounters = new WriteBehindCounters(resourceRepository, Mockito.mock(ResourceCache.class), true,
+                Duration.ofHours(1), 4);
+    }
+
+    @Test
+    void testBorrowUnit_coalescesWritesUntilFlush() {
+        // Arrange
+        Resource resource = new Resource("1233435ff", "Nombre #1", "Area tematica #1", "Tipo #1",
+                LocalDate.parse("2020-01-10"), 5, 2);
+        LocalDate today = LocalDate.parse("2023-03-01");
+
+        Mockito.when(resourceRepository.findById(resource.getId())).thenReturn(Mono.just(resource));
+        Mockito.when(resourceRepository.incrementUnits(any())).thenReturn(Mono.just(1L));
+
+        // Act
+        StepVerifier.create(writeBehindCounters.borrowUnit(resource.getId(), today))
+                .expectNextMatches(borrowed -> borrowed.getUnitsAvailable() == 1)
+                .verifyComplete();
+        StepVerifier.create(writeBehindCounters.borrowUnit(resource.getId(), today))
+                .expectNextMatches(borrowed -> borrowed.getUnitsAvailable() == 0 && borrowed.getUnitsOwed() == 7)
+                .verifyComplete();
+        StepVerifier.create(writeBehindCounters.borrowUnit(resource.getId(), today))
+                .verifyComplete();
+        Mockito.verify(resourceRepository, Mockito.never()).incrementUnits(any());
+
+        StepVerifier.create(writeBehindCounters.flush()).verifyComplete();
+
+        // Assert
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<UnitsDelta>> deltas = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(resourceRepository, Mockito.times(1)).incrementUnits(deltas.capture());
+        Assertions.assertEquals(List.of(new UnitsDelta(resource.getId(), -2, 2, today)), deltas.getValue());
+        Mockito.verify(resourceRepository, Mockito.times(1)).findById(resource.getId());
+    }
+
+    @Test
+    void testFlush_keepsDeltasWhenWriteFails() {
+        // Arrange
+        Resource resource = new Resource("1233435ff", "Nombre #1", "Area tematica #1", "Tipo #1",
+                null, 1, 0);
+
+        Mockito.when(resourceRepository.findById(resource.getId())).thenReturn(Mono.just(resource));
+        Mockito.when(resourceRepository.incrementUnits(any()))
+                .thenReturn(Mono.error(new IllegalStateException("down")))
+                .thenReturn(Mono.just(1L));
+
+        // Act
+        StepVerifier.create(writeBehindCounters.returnUnit(resource.getId()))
+                .expectNextMatches(returned -> returned.getUnitsAvailable() == 1 && returned.getUnitsOwed() == 0)
+                .verifyComplete();
+        StepVerifier.create(writeBehindCounters.flush()).verifyError(IllegalStateException.class);
+        StepVerifier.create(writeBehindCounters.flush()).verifyComplete();
+
+        // Assert
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<UnitsDelta>> deltas = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(resourceRepository, Mockito.times(2)).incrementUnits(deltas.capture());
+        Assertions.assertEquals(List.of(new UnitsDelta(resource.getId(), 1, -1, null)), deltas.getValue());
+    }
+
+    @Test
+    void testBorrowUnit_unknownResource() {
+        // Arrange
+        Mockito.when(resourceRepository.findById("otherId")).thenReturn(Mono.empty());
+
+        // Act
+        StepVerifier.create(writeBehindCounters.borrowUnit("otherId", LocalDate.now()))
+                .verifyComplete();
+
+        // Assert
+        Assertions.assertFalse(writeBehindCounters.isTracked("otherId"));
+    }
+
+    @Test
+    void testFlush_keepsOnlyTheFailedDeltasOfAPartialBulk() {
+        // Arrange
+        Resource first = new Resource("1", "Nombre #1", "Area tematica #1", "Tipo #1", null, 1, 0);
+        Resource second = new Resource("2", "Nombre #2", "Area tematica #1", "Tipo #1", null, 1, 0);
+
+        Mockito.when(resourceRepository.findById("1")).thenReturn(Mono.just(first));
+        Mockito.when(resourceRepository.findById("2")).thenReturn(Mono.just(second));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<UnitsDelta>> deltas = ArgumentCaptor.forClass(List.class);
+        Mockito.when(resourceRepository.incrementUnits(deltas.capture()))
+                .thenAnswer(invocation -> {
+                    // The second write of the bulk fails, the first one is applied
+                    MongoBulkWriteException partial = new MongoBulkWriteException(
+                            BulkWriteResult.acknowledged(0, 1, 0, 1, List.of(), List.of()),
+                            List.of(new BulkWriteError(11000, "duplicate key", new BsonDocument(), 1)), null,
+                            new ServerAddress());
+                    return Mono.error(partial);
+                })
+                .thenReturn(Mono.just(1L));
+
+        StepVerifier.create(writeBehindCounters.returnUnit("1")).expectNextCount(1).verifyComplete();
+        StepVerifier.create(writeBehindCounters.returnUnit("2")).expectNextCount(1).verifyComplete();
+
+        // Act
+        StepVerifier.create(writeBehindCounters.flush()).verifyError(MongoBulkWriteException.class);
+        StepVerifier.create(writeBehindCounters.flush()).verifyComplete();
+
+        // Assert
+        List<UnitsDelta> failed = deltas.getAllValues().get(0).subList(1, 2);
+        Assertions.assertEquals(failed, deltas.getAllValues().get(1));
+    }
+}
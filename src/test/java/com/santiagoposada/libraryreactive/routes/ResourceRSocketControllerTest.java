@@ -0,0 +1,133 @@
+package com.santiagoposada.libraryreactive.routes;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import org.springframework.util.MimeTypeUtils;
+
+import com.santiagoposada.libraryreactive.dto.BulkResultDTO;
+import com.santiagoposada.libraryreactive.dto.BulkStatus;
+import com.santiagoposada.libraryreactive.dto.ResourceDTO;
+import com.santiagoposada.libraryreactive.usecase.BorrowResourceUseCase;
+import com.santiagoposada.libraryreactive.usecase.BulkBorrowUseCase;
+import com.santiagoposada.libraryreactive.usecase.GetAllUseCase;
+import com.santiagoposada.libraryreactive.usecase.GetByCategoryUseCase;
+import com.santiagoposada.libraryreactive.usecase.GetByTypeUseCase;
+import com.santiagoposada.libraryreactive.usecase.GetResourceByIdUseCase;
+import com.santiagoposada.libraryreactive.usecase.ReturnUseCase;
+
+import io.rsocket.core.RSocketServer;
+import io.rsocket.transport.netty.server.CloseableChannel;
+import io.rsocket.transport.netty.server.TcpServerTransport;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class ResourceRSocketControllerTest {
+
+    private final GetResourceByIdUseCase getResourceByIdUseCase = Mockito.mock(GetResourceByIdUseCase.class);
+    private final BulkBorrowUseCase bulkBorrowUseCase = Mockito.mock(BulkBorrowUseCase.class);
+
+    private CloseableChannel server;
+    private RSocketRequester requester;
+
+    @BeforeEach
+    void setUp() {
+        RSocketStrategies strategies = RSocketStrategies.builder()
+                .encoder(new Jackson2CborEncoder())
+                .decoder(new Jackson2CborDecoder())
+                .build();
+        RSocketMessageHandler handler = new RSocketMessageHandler();
+        handler.setRSocketStrategies(strategies);
+        handler.setHandlers(List.of(new ResourceRSocketController(getResourceByIdUseCase,
+                Mockito.mock(BorrowResourceUseCase.class), Mockito.mock(ReturnUseCase.class),
+                Mockito.mock(GetAllUseCase.class), Mockito.mock(GetByTypeUseCase.class),
+                Mockito.mock(GetByCategoryUseCase.class), bulkBorrowUseCase, 3, Duration.ofSeconds(5), 2)));
+        handler.afterPropertiesSet();
+
+        server = RSocketServer.create(handler.responder())
+                .bind(TcpServerTransport.create("localhost", 0))
+                .block();
+        requester = RSocketRequester.builder()
+                .rsocketStrategies(strategies)
+                .dataMimeType(MimeTypeUtils.parseMimeType("application/cbor"))
+                .tcp("localhost", server.address().getPort());
+    }
+
+    @AfterEach
+    void tearDown() {
+        requester.dispose();
+        server.dispose();
+    }
+
+    @Test
+    void testGetResourceById() {
+        // Arrange
+        ResourceDTO resource = new ResourceDTO();
+        resource.setId("12345");
+        resource.setName("Nombre #1");
+        Mockito.when(getResourceByIdUseCase.apply("12345")).thenReturn(Mono.just(resource));
+
+        // Act
+        Mono<ResourceDTO> result = requester.route("resource.{id}", "12345").retrieveMono(ResourceDTO.class);
+
+        // Assert
+        StepVerifier.create(result)
+                .expectNext(resource)
+                .verifyComplete();
+    }
+
+    @Test
+    void testBulkBorrowChannel_borrowsInBatchesWithinTheBulkLimit() {
+        // Arrange
+        Mockito.when(bulkBorrowUseCase.apply(Mockito.anyList())).thenAnswer(invocation -> Flux
+                .fromIterable(invocation.<List<String>>getArgument(0))
+                .map(id -> new BulkResultDTO(id, BulkStatus.BORROWED)));
+
+        // Act
+        Flux<BulkResultDTO> results = requester.route("resources.borrow")
+                .data(Flux.just("1", "2", "3"))
+                .retrieveFlux(BulkResultDTO.class);
+
+        // Assert
+        StepVerifier.create(results.map(BulkResultDTO::getId))
+                .expectNext("1", "2", "3")
+                .verifyComplete();
+        Mockito.verify(bulkBorrowUseCase).apply(List.of("1", "2"));
+        Mockito.verify(bulkBorrowUseCase).apply(List.of("3"));
+    }
+
+    @Test
+    void testBulkBorrowChannel_keepsUpWithASlowBorrow() {
+        // Arrange: ids trickle in faster than each batch is borrowed, so closed batches pile up
+        ResourceRSocketController controller = new ResourceRSocketController(getResourceByIdUseCase,
+                Mockito.mock(BorrowResourceUseCase.class), Mockito.mock(ReturnUseCase.class),
+                Mockito.mock(GetAllUseCase.class), Mockito.mock(GetByTypeUseCase.class),
+                Mockito.mock(GetByCategoryUseCase.class), bulkBorrowUseCase, 100, Duration.ofMillis(1), 100);
+        Mockito.when(bulkBorrowUseCase.apply(Mockito.anyList())).thenAnswer(invocation -> Flux
+                .fromIterable(invocation.<List<String>>getArgument(0))
+                .map(id -> new BulkResultDTO(id, BulkStatus.BORROWED))
+                .delaySubscription(Duration.ofMillis(20)));
+        List<String> sent = IntStream.range(0, 60).mapToObj(String::valueOf).collect(Collectors.toList());
+        Flux<String> ids = Flux.fromIterable(sent).delayElements(Duration.ofMillis(2));
+
+        // Act
+        Flux<BulkResultDTO> results = controller.bulkBorrow(ids);
+
+        // Assert
+        StepVerifier.create(results.map(BulkResultDTO::getId))
+                .expectNextSequence(sent)
+                .verifyComplete();
+    }
+}
@@ -1,6 +1,8 @@
 package com.santiagoposada.libraryreactive.routes;
 
+import java.io.IOException;
 import java.time.LocalDate;
+import java.util.List;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -8,11 +10,21 @@ import org.mockito.Mockito;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.santiagoposada.libraryreactive.config.SingleValueCborEncoder;
+import com.santiagoposada.libraryreactive.dto.BulkResultDTO;
+import com.santiagoposada.libraryreactive.dto.BulkStatus;
+import com.santiagoposada.libraryreactive.dto.PageRequestDTO;
 import com.santiagoposada.libraryreactive.dto.ResourceDTO;
+import com.santiagoposada.libraryreactive.dto.ResourcePageDTO;
 import com.santiagoposada.libraryreactive.entity.Resource;
 import com.santiagoposada.libraryreactive.usecase.BorrowResourceUseCase;
+import com.santiagoposada.libraryreactive.usecase.BulkBorrowUseCase;
+import com.santiagoposada.libraryreactive.usecase.BulkReturnUseCase;
 import com.santiagoposada.libraryreactive.usecase.CheckAvailabilityUseCase;
 import com.santiagoposada.libraryreactive.usecase.CreateResourceUseCase;
 import com.santiagoposada.libraryreactive.usecase.DeleteResourceUseCase;
@@ -35,6 +47,12 @@ public class ResourceRouterTest {
         @MockBean
         private BorrowResourceUseCase borrowResourceUseCase;
 
+        @MockBean
+        private BulkBorrowUseCase bulkBorrowUseCase;
+
+        @MockBean
+        private BulkReturnUseCase bulkReturnUseCase;
+
         @MockBean
         private CheckAvailabilityUseCase checkAvailabilityUseCase;
 
@@ -267,15 +285,17 @@ public class ResourceRouterTest {
                                 .bindToRouterFunction(new ResourceRouter().getAllRouter(getAllUseCase))
                                 .build();
 
-                Mockito.when(getAllUseCase.get()).thenReturn(resourceFlux);
+                Mockito.when(getAllUseCase.apply(new PageRequestDTO(null, 2)))
+                                .thenReturn(resourceFlux.collectList().map(page -> new ResourcePageDTO(page, "next")));
 
                 // Act
                 webTestClient.get()
-                                .uri("/resources")
+                                .uri("/resources?limit=2")
                                 .exchange()
                                 // Assert
                                 .expectStatus().isOk()
                                 .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                                .expectHeader().valueEquals(ResourceRouter.NEXT_CURSOR_HEADER, "next")
                                 .expectBodyList(ResourceDTO.class)
                                 .value(result -> {
                                         StepVerifier.create(Flux.fromIterable(result))
@@ -285,6 +305,42 @@ public class ResourceRouterTest {
                                 });
         }
 
+        @Test
+        void testGetAllRouterStreamsNdjson() {
+                // Arrange
+                ResourceDTO resource1 = new ResourceDTO();
+                resource1.setId("a1");
+                resource1.setName("Nombre #1");
+
+                ResourceDTO resource2 = new ResourceDTO();
+                resource2.setId("a2");
+                resource2.setName("Nombre #2");
+
+                webTestClient = WebTestClient
+                                .bindToRouterFunction(new ResourceRouter().getAllRouter(getAllUseCase))
+                                .build();
+
+                Mockito.when(getAllUseCase.stream(new PageRequestDTO(null, null)))
+                                .thenReturn(Flux.just(resource1, resource2));
+
+                // Act
+                webTestClient.get()
+                                .uri("/resources")
+                                .accept(MediaType.APPLICATION_NDJSON)
+                                .exchange()
+                                // Assert
+                                .expectStatus().isOk()
+                                .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+                                .expectHeader().doesNotExist(ResourceRouter.NEXT_CURSOR_HEADER)
+                                .returnResult(ResourceDTO.class)
+                                .getResponseBody()
+                                .as(StepVerifier::create)
+                                .expectNext(resource1, resource2)
+                                .expectComplete()
+                                .verify();
+                Mockito.verify(getAllUseCase, Mockito.never()).apply(Mockito.any());
+        }
+
         @Test
         void testGetByCategory() {
                 // Arrange
@@ -312,7 +368,8 @@ public class ResourceRouterTest {
 
                 Flux<ResourceDTO> resourceFlux = Flux.just(resource1, resource2);
 
-                Mockito.when(getByCategoryUseCase.apply(category)).thenReturn(resourceFlux);
+                Mockito.when(getByCategoryUseCase.apply(category, new PageRequestDTO()))
+                                .thenReturn(resourceFlux.collectList().map(page -> new ResourcePageDTO(page, null)));
 
                 webTestClient = WebTestClient
                                 .bindToRouterFunction(new ResourceRouter().getByCategory(getByCategoryUseCase))
@@ -365,7 +422,8 @@ public class ResourceRouterTest {
                                 .bindToRouterFunction(new ResourceRouter().getByTypeRoute(getByTypeUseCase))
                                 .build();
 
-                Mockito.when(getByTypeUseCase.apply(type)).thenReturn(resourceFlux);
+                Mockito.when(getByTypeUseCase.apply(type, new PageRequestDTO()))
+                                .thenReturn(resourceFlux.collectList().map(page -> new ResourcePageDTO(page, null)));
 
                 // Act
                 webTestClient.get()
@@ -384,7 +442,7 @@ public class ResourceRouterTest {
         }
 
         @Test
-        void testGetResourceById() {
+        void testGetResourceById() throws IOException {
                 // Arrange
                 String resourceId = "12345";
                 ResourceDTO resource = new ResourceDTO();
@@ -401,7 +459,8 @@ public class ResourceRouterTest {
                                 .bindToRouterFunction(new ResourceRouter().getResourceById(getResourceByIdUseCase))
                                 .build();
 
-                Mockito.when(getResourceByIdUseCase.apply(resourceId)).thenReturn(Mono.just(resource));
+                byte[] json = Jackson2ObjectMapperBuilder.json().build().writeValueAsBytes(resource);
+                Mockito.when(getResourceByIdUseCase.json(resourceId)).thenReturn(Mono.just(json));
 
                 // Act
                 webTestClient.get()
@@ -419,6 +478,43 @@ public class ResourceRouterTest {
                                 });
         }
 
+        @Test
+        void testGetResourceByIdNegotiatesCbor() throws IOException {
+                // Arrange
+                String resourceId = "12345";
+                ResourceDTO resource = new ResourceDTO();
+
+                resource.setId(resourceId);
+                resource.setName("Nombre #1");
+                resource.setUnitsAvailable(10);
+                resource.setLastBorrow(LocalDate.parse("2020-01-10"));
+
+                ObjectMapper cborMapper = Jackson2ObjectMapperBuilder.cbor().build();
+                webTestClient = WebTestClient
+                                .bindToRouterFunction(new ResourceRouter().getResourceById(getResourceByIdUseCase))
+                                .handlerStrategies(HandlerStrategies.builder()
+                                                .codecs(codecs -> codecs.customCodecs()
+                                                                .register(new SingleValueCborEncoder(cborMapper)))
+                                                .build())
+                                .build();
+
+                Mockito.when(getResourceByIdUseCase.apply(resourceId, null)).thenReturn(Mono.just(resource));
+
+                // Act
+                byte[] body = webTestClient.get()
+                                .uri("/resource/{id}", resourceId)
+                                .accept(MediaType.APPLICATION_CBOR, MediaType.APPLICATION_JSON)
+                                .exchange()
+                                .expectStatus().isOk()
+                                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                                .expectBody(byte[].class)
+                                .returnResult()
+                                .getResponseBody();
+
+                // Assert
+                Assertions.assertEquals(resource, cborMapper.readValue(body, ResourceDTO.class));
+        }
+
         @Test
         void testReturnRoute() {
                 // Arrange
@@ -507,4 +603,63 @@ public class ResourceRouterTest {
                                                         .verify();
                                 });
         }
+
+        @Test
+        void testBulkBorrowRoute() {
+                // Arrange
+                List<String> ids = List.of("1233435ff", "67890");
+                BulkResultDTO borrowed = new BulkResultDTO("1233435ff", BulkStatus.BORROWED);
+                BulkResultDTO notFound = new BulkResultDTO("67890", BulkStatus.NOT_FOUND);
+
+                Mockito.when(bulkBorrowUseCase.apply(ids)).thenReturn(Flux.just(borrowed, notFound));
+
+                webTestClient = WebTestClient
+                                .bindToRouterFunction(new ResourceRouter().bulkBorrowRoute(bulkBorrowUseCase))
+                                .build();
+
+                // Act
+                webTestClient.put()
+                                .uri("/borrow")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .bodyValue(ids)
+                                .exchange()
+                                // Assert
+                                .expectStatus().isOk()
+                                .expectBodyList(BulkResultDTO.class)
+                                .value(result -> {
+                                        StepVerifier.create(Flux.fromIterable(result))
+                                                        .expectNext(borrowed, notFound)
+                                                        .expectComplete()
+                                                        .verify();
+                                });
+        }
+
+        @Test
+        void testBulkReturnRoute() {
+                // Arrange
+                List<String> ids = List.of("1233435ff");
+                BulkResultDTO returned = new BulkResultDTO("1233435ff", BulkStatus.RETURNED);
+
+                Mockito.when(bulkReturnUseCase.apply(ids)).thenReturn(Flux.just(returned));
+
+                webTestClient = WebTestClient
+                                .bindToRouterFunction(new ResourceRouter().bulkReturnRoute(bulkReturnUseCase))
+                                .build();
+
+                // Act
+                webTestClient.put()
+                                .uri("/return")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .bodyValue(ids)
+                                .exchange()
+                                // Assert
+                                .expectStatus().isOk()
+                                .expectBodyList(BulkResultDTO.class)
+                                .value(result -> {
+                                        StepVerifier.create(Flux.fromIterable(result))
+                                                        .expectNext(returned)
+                                                        .expectComplete()
+                                                        .verify();
+                                });
+        }
 }
@@ -12,17 +12,24 @@ import org.springframework.boot.test.mock.mockito.SpyBean;
 import com.santiagoposada.libraryreactive.dto.ResourceDTO;
 import com.santiagoposada.libraryreactive.entity.Resource;
 import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.repository.ShardedCounters;
 import com.santiagoposada.libraryreactive.utils.ResourceNotFoundException;
 
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
 @SpringBootTest
 public class BorrowResourceUseCaseTest {
 
     @MockBean
     private ResourceRepository resourceRepository;
 
+    @MockBean
+    private ShardedCounters shardedCounters;
+
     @SpyBean
     private BorrowResourceUseCase borrowResourceUseCase;
 
@@ -48,11 +55,14 @@ public class BorrowResourceUseCaseTest {
         resourceDTO.setUnitsOwed(resource.getUnitsOwed());
         resourceDTO.setLastBorrow(resource.getLastBorrow());
 
+        Resource borrowed = new Resource(resource.getId(), resource.getName(), resource.getCategory(),
+                resource.getType(), LocalDate.now(), resource.getUnitsOwed() + 1, resource.getUnitsAvailable() - 1);
+
         String responseMessage = "The resource " + resource.getName() + " has been borrowed, there are "
                 + (resource.getUnitsAvailable() - 1) + " units available";
 
-        Mockito.when(resourceRepository.findById(resourceDTO.getId())).thenReturn(Mono.just(resource));
-        Mockito.when(resourceRepository.save(resource)).thenReturn(Mono.just(resource));
+        Mockito.when(resourceRepository.borrowUnit(eq(resourceDTO.getId()), any(LocalDate.class)))
+                .thenReturn(Mono.just(borrowed));
 
         // Act
         Mono<String> result = borrowResourceUseCase.apply(resourceDTO.getId());
@@ -63,8 +73,10 @@ public class BorrowResourceUseCaseTest {
                 .expectComplete()
                 .verify();
 
-        Assertions.assertEquals(resourceDTO.getUnitsOwed() + 1, resource.getUnitsOwed());
-        Assertions.assertEquals(resourceDTO.getUnitsAvailable() - 1, resource.getUnitsAvailable());
+        Mockito.verify(resourceRepository, Mockito.never()).findById(resourceDTO.getId());
+        Mockito.verify(resourceRepository, Mockito.never()).save(any());
+        Assertions.assertEquals(resourceDTO.getUnitsOwed() + 1, borrowed.getUnitsOwed());
+        Assertions.assertEquals(resourceDTO.getUnitsAvailable() - 1, borrowed.getUnitsAvailable());
     }
 
     @Test
@@ -91,6 +103,8 @@ public class BorrowResourceUseCaseTest {
 
         String responseMessage = "There arent units left to be borrow of that resource";
 
+        Mockito.when(resourceRepository.borrowUnit(eq(resourceDTO.getId()), any(LocalDate.class)))
+                .thenReturn(Mono.empty());
         Mockito.when(resourceRepository.findById(resourceDTO.getId())).thenReturn(Mono.just(resource));
 
         // Act
@@ -106,6 +120,51 @@ public class BorrowResourceUseCaseTest {
         Assertions.assertEquals(resourceDTO.getUnitsAvailable(), resource.getUnitsAvailable());
     }
 
+    @Test
+    void testApply_sharded() {
+        // Arrange
+        Resource resource = new Resource("1233435ff", "Nombre #1", "Area tematica #1", "Tipo #1",
+                LocalDate.parse("2020-01-10"), 0, 0);
+        resource.setShards(4);
+        Resource totals = new Resource(resource.getId(), resource.getName(), resource.getCategory(),
+                resource.getType(), LocalDate.now(), 6, 9);
+
+        Mockito.when(resourceRepository.borrowUnit(eq(resource.getId()), any(LocalDate.class))).thenReturn(Mono.empty());
+        Mockito.when(resourceRepository.findById(resource.getId())).thenReturn(Mono.just(resource));
+        Mockito.when(shardedCounters.borrowUnit(eq(resource), any(LocalDate.class))).thenReturn(Mono.just(totals));
+
+        // Act
+        Mono<String> result = borrowResourceUseCase.apply(resource.getId());
+
+        // Assert
+        StepVerifier.create(result)
+                .expectNext("The resource Nombre #1 has been borrowed, there are 9 units available")
+                .expectComplete()
+                .verify();
+    }
+
+    @Test
+    void testApply_demotedOnAnotherInstance() {
+        // Arrange
+        Resource borrowed = new Resource("1233435ff", "Nombre #1", "Area tematica #1", "Tipo #1",
+                LocalDate.now(), 6, 9);
+
+        // The shard miss drops the stale hint
+        Mockito.when(shardedCounters.isSharded(borrowed.getId())).thenReturn(true, false);
+        Mockito.when(shardedCounters.borrowUnit(eq(borrowed.getId()), any(LocalDate.class))).thenReturn(Mono.empty());
+        Mockito.when(resourceRepository.borrowUnit(eq(borrowed.getId()), any(LocalDate.class)))
+                .thenReturn(Mono.just(borrowed));
+
+        // Act
+        Mono<String> result = borrowResourceUseCase.apply(borrowed.getId());
+
+        // Assert
+        StepVerifier.create(result)
+                .expectNext("The resource Nombre #1 has been borrowed, there are 9 units available")
+                .expectComplete()
+                .verify();
+    }
+
     @Test
     void testApply_IdIsRequired() {
         // Arrange
@@ -130,6 +189,7 @@ public class BorrowResourceUseCaseTest {
     @Test
     void testApply_empty() {
         // Arrange
+        Mockito.when(resourceRepository.borrowUnit(eq("otherId"), any(LocalDate.class))).thenReturn(Mono.empty());
         Mockito.when(resourceRepository.findById("otherId")).thenReturn(Mono.empty());
 
         // Act
@@ -0,0 +1,91 @@
+package com.santiagoposada.libraryreactive.usecase;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.HttpStatus;
+
+import com.santiagoposada.libraryreactive.dto.BulkResultDTO;
+import com.santiagoposada.libraryreactive.dto.BulkStatus;
+import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.utils.HttpException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
+@SpringBootTest
+public class BulkBorrowUseCaseTest {
+
+    @MockBean
+    private ResourceRepository resourceRepository;
+
+    @SpyBean
+    private BulkBorrowUseCase bulkBorrowUseCase;
+
+    @Test
+    void testApply() {
+        // Arrange
+        List<String> ids = List.of("1", "2", "3", "1", "1");
+
+        // Only two of the three copies of "1" were left
+        Mockito.when(resourceRepository.borrowUnits(eq(ids), any(LocalDate.class)))
+                .thenReturn(Mono.just(Map.of("1", 2, "2", 0)));
+
+        // Act
+        Flux<BulkResultDTO> result = bulkBorrowUseCase.apply(ids);
+
+        // Assert
+        StepVerifier.create(result)
+                .expectNext(new BulkResultDTO("1", BulkStatus.BORROWED))
+                .expectNext(new BulkResultDTO("2", BulkStatus.UNAVAILABLE))
+                .expectNext(new BulkResultDTO("3", BulkStatus.NOT_FOUND))
+                .expectNext(new BulkResultDTO("1", BulkStatus.BORROWED))
+                .expectNext(new BulkResultDTO("1", BulkStatus.UNAVAILABLE))
+                .verifyComplete();
+        Mockito.verify(resourceRepository, Mockito.times(1)).borrowUnits(any(), any());
+    }
+
+    @Test
+    void testApply_empty() {
+        // Act
+        Flux<BulkResultDTO> result = bulkBorrowUseCase.apply(List.of());
+
+        // Assert
+        StepVerifier.create(result)
+                .expectNextCount(0)
+                .verifyComplete();
+        Mockito.verify(resourceRepository, Mockito.never()).borrowUnits(any(), any());
+    }
+
+    @Test
+    void testApply_tooManyIds() {
+        // Arrange
+        List<String> ids = IntStream.rangeClosed(0, 100).mapToObj(String::valueOf).collect(Collectors.toList());
+
+        // Act
+        Flux<BulkResultDTO> result = bulkBorrowUseCase.apply(ids);
+
+        // Assert
+        StepVerifier.create(result)
+                .expectErrorMatches(throwable -> {
+                    Assertions.assertTrue(throwable instanceof HttpException);
+                    Assertions.assertEquals(HttpStatus.BAD_REQUEST, ((HttpException) throwable).getStatusCode());
+                    return true;
+                })
+                .verify();
+        Mockito.verify(resourceRepository, Mockito.never()).borrowUnits(any(), any());
+    }
+}
@@ -0,0 +1,45 @@
+package com.santiagoposada.libraryreactive.usecase;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import com.santiagoposada.libraryreactive.dto.BulkResultDTO;
+import com.santiagoposada.libraryreactive.dto.BulkStatus;
+import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@SpringBootTest
+public class BulkReturnUseCaseTest {
+
+    @MockBean
+    private ResourceRepository resourceRepository;
+
+    @SpyBean
+    private BulkReturnUseCase bulkReturnUseCase;
+
+    @Test
+    void testApply() {
+        // Arrange
+        Mockito.when(resourceRepository.returnUnits(List.of("1", "2", "3")))
+                .thenReturn(Mono.just(Map.of("1", 1, "2", 0)));
+
+        // Act
+        Flux<BulkResultDTO> result = bulkReturnUseCase.apply(List.of("1", "2", "3"));
+
+        // Assert
+        StepVerifier.create(result)
+                .expectNext(new BulkResultDTO("1", BulkStatus.RETURNED))
+                .expectNext(new BulkResultDTO("2", BulkStatus.NOT_OWED))
+                .expectNext(new BulkResultDTO("3", BulkStatus.NOT_FOUND))
+                .verifyComplete();
+    }
+}
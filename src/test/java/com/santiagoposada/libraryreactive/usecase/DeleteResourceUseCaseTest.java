@@ -6,9 +6,12 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
 
+import com.santiagoposada.libraryreactive.entity.Resource;
 import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.repository.RollupCounters;
 
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 @SpringBootTest
 public class DeleteResourceUseCaseTest {
@@ -16,6 +19,9 @@ public class DeleteResourceUseCaseTest {
     @MockBean
     private ResourceRepository resourceRepository;
 
+    @MockBean
+    private RollupCounters rollupCounters;
+
     @SpyBean
     private DeleteResourceUseCase deleteResourceUseCase;
 
@@ -28,14 +34,29 @@ public class DeleteResourceUseCaseTest {
     void testApply() {
         // Arrange
         String resourceId = "12345";
-        
-        Mockito.when(resourceRepository.deleteById(resourceId)).thenReturn(Mono.empty());
+        Resource resource = new Resource(resourceId, "Nombre #1", "Area tematica #1", "Tipo #1", null, 5, 10);
+
+        Mockito.when(resourceRepository.removeById(resourceId)).thenReturn(Mono.just(resource));
 
         // Act
         Mono<Void> result = deleteResourceUseCase.apply(resourceId);
 
         // Assert
-        result.subscribe();
-        Mockito.verify(resourceRepository, Mockito.times(1)).deleteById(resourceId);
+        StepVerifier.create(result).verifyComplete();
+        Mockito.verify(resourceRepository, Mockito.times(1)).removeById(resourceId);
+        Mockito.verify(rollupCounters, Mockito.times(1)).removed(resource);
+    }
+
+    @Test
+    void testApply_notFound() {
+        // Arrange
+        Mockito.when(resourceRepository.removeById("missing")).thenReturn(Mono.empty());
+
+        // Act
+        Mono<Void> result = deleteResourceUseCase.apply("missing");
+
+        // Assert
+        StepVerifier.create(result).verifyComplete();
+        Mockito.verify(rollupCounters, Mockito.never()).removed(Mockito.any());
     }
 }
@@ -0,0 +1,61 @@
+package com.santiagoposada.libraryreactive.usecase;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import com.santiagoposada.libraryreactive.entity.Resource;
+import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.repository.ShardedCounters;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@SpringBootTest
+public class DemoteResourceUseCaseTest {
+
+    @MockBean
+    private ResourceRepository resourceRepository;
+
+    @MockBean
+    private ShardedCounters shardedCounters;
+
+    @SpyBean
+    private DemoteResourceUseCase demoteResourceUseCase;
+
+    @Test
+    void testApply() {
+        // Arrange
+        Resource resource = new Resource("1233435ff", "Nombre #1", "Area tematica #1", "Tipo #1",
+                LocalDate.parse("2020-01-10"), 5, 10);
+
+        Mockito.when(shardedCounters.demote(resource.getId())).thenReturn(Mono.just(resource));
+
+        // Act
+        Mono<String> result = demoteResourceUseCase.apply(resource.getId());
+
+        // Assert
+        StepVerifier.create(result)
+                .expectNext("The resource Nombre #1 is no longer split, there are 10 units available")
+                .verifyComplete();
+    }
+
+    @Test
+    void testApply_notSharded() {
+        // Arrange
+        Mockito.when(shardedCounters.demote("1233435ff")).thenReturn(Mono.empty());
+        Mockito.when(resourceRepository.existsById("1233435ff")).thenReturn(Mono.just(true));
+
+        // Act
+        Mono<String> result = demoteResourceUseCase.apply("1233435ff");
+
+        // Assert
+        StepVerifier.create(result)
+                .expectNext("The resource with id: 1233435ff is not split across shards")
+                .verifyComplete();
+    }
+}
@@ -6,15 +6,23 @@ import org.mockito.Mockito;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.mongodb.core.query.Criteria;
 
+import com.santiagoposada.libraryreactive.dto.PageRequestDTO;
 import com.santiagoposada.libraryreactive.dto.ResourceDTO;
+import com.santiagoposada.libraryreactive.dto.ResourcePageDTO;
 import com.santiagoposada.libraryreactive.entity.Resource;
 import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.utils.HttpException;
+import com.santiagoposada.libraryreactive.utils.PageCursor;
 
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
 
 @SpringBootTest
 public class GetAllUseCaseTest {
@@ -47,18 +55,93 @@ public class GetAllUseCaseTest {
         resourceDTO.setUnitsOwed(resource.getUnitsOwed());
         resourceDTO.setLastBorrow(resource.getLastBorrow());
         
-        Mockito.when(resourceRepository.findAll()).thenReturn(Flux.just(resource));
+        Mockito.when(resourceRepository.findPage(new Criteria(), null, 101, null)).thenReturn(Flux.just(resource));
 
         // Act
-        Flux<ResourceDTO> result = getAllUseCase.get();
+        Mono<ResourcePageDTO> result = getAllUseCase.apply(new PageRequestDTO());
 
         // Assert
         StepVerifier.create(result)
-                .expectNextMatches(resourceCurrent -> {
-                    Assertions.assertEquals(resourceDTO, resourceCurrent);
-                    Assertions.assertEquals(resourceDTO.getId(), resourceCurrent.getId());
-                    return resourceCurrent.getId().equals(resourceDTO.getId());
+                .expectNextMatches(page -> {
+                    Assertions.assertEquals(List.of(resourceDTO), page.getResources());
+                    Assertions.assertNull(page.getNext());
+                    return page.getResources().get(0).getId().equals(resourceDTO.getId());
                 })
                 .verifyComplete();
     }
+
+    @Test
+    void testApply_nextCursor() {
+        // Arrange
+        Resource first = new Resource();
+        first.setId("a1");
+        Resource second = new Resource();
+        second.setId("a2");
+        Resource third = new Resource();
+        third.setId("a3");
+
+        Mockito.when(resourceRepository.findPage(new Criteria(), "a0", 3, null)).thenReturn(Flux.just(first, second, third));
+
+        // Act
+        Mono<ResourcePageDTO> result = getAllUseCase.apply(new PageRequestDTO(PageCursor.encode("a0"), 2));
+
+        // Assert
+        StepVerifier.create(result)
+                .expectNextMatches(page -> {
+                    Assertions.assertEquals(2, page.getResources().size());
+                    Assertions.assertEquals("a2", PageCursor.decode(page.getNext()));
+                    return true;
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void testApply_projection() {
+        // Arrange
+        Set<String> fields = Set.of("id", "name", "unitsAvailable");
+        Resource resource = new Resource("a1", "Nombre #1", null, null, null, null, 3);
+
+        Mockito.when(resourceRepository.findPage(new Criteria(), null, 101, fields)).thenReturn(Flux.just(resource));
+
+        // Act
+        Mono<ResourcePageDTO> result = getAllUseCase.apply(new PageRequestDTO(null, null, fields));
+
+        // Assert
+        StepVerifier.create(result)
+                .expectNextMatches(page -> {
+                    ResourceDTO resourceDTO = page.getResources().get(0);
+                    Assertions.assertEquals("Nombre #1", resourceDTO.getName());
+                    Assertions.assertEquals(3, resourceDTO.getUnitsAvailable());
+                    Assertions.assertNull(resourceDTO.getVersion());
+                    return "a1".equals(resourceDTO.getId());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void testApply_limitCapped() {
+        // Arrange
+        Mockito.when(resourceRepository.findPage(new Criteria(), null, 1001, null)).thenReturn(Flux.empty());
+
+        // Act
+        Mono<ResourcePageDTO> result = getAllUseCase.apply(new PageRequestDTO(null, 5000));
+
+        // Assert
+        StepVerifier.create(result)
+                .expectNextMatches(page -> page.getResources().isEmpty())
+                .verifyComplete();
+        Mockito.verify(resourceRepository).findPage(new Criteria(), null, 1001, null);
+    }
+
+    @Test
+    void testApply_invalidCursor() {
+        // Act
+        Mono<ResourcePageDTO> result = getAllUseCase.apply(new PageRequestDTO("", 10));
+
+        // Assert
+        StepVerifier.create(result)
+                .expectError(HttpException.class)
+                .verify();
+        Mockito.verify(resourceRepository, Mockito.never()).findPage(Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any());
+    }
 }
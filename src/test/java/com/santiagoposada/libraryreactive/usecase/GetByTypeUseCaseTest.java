@@ -1,6 +1,7 @@
 package com.santiagoposada.libraryreactive.usecase;
 
 import java.time.LocalDate;
+import java.util.List;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -8,12 +9,16 @@ import org.mockito.Mockito;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.mongodb.core.query.Criteria;
 
+import com.santiagoposada.libraryreactive.dto.PageRequestDTO;
 import com.santiagoposada.libraryreactive.dto.ResourceDTO;
+import com.santiagoposada.libraryreactive.dto.ResourcePageDTO;
 import com.santiagoposada.libraryreactive.entity.Resource;
 import com.santiagoposada.libraryreactive.repository.ResourceRepository;
 
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 @SpringBootTest
@@ -47,17 +52,18 @@ public class GetByTypeUseCaseTest {
         resourceDTO.setUnitsOwed(resource.getUnitsOwed());
         resourceDTO.setLastBorrow(resource.getLastBorrow());
 
-        Mockito.when(resourceRepository.findAllByType(resourceDTO.getType())).thenReturn(Flux.just(resource));
+        Mockito.when(resourceRepository.findPage(Criteria.where("type").is(resourceDTO.getType()), null, 101, null))
+                .thenReturn(Flux.just(resource));
 
         // Act
-        Flux<ResourceDTO> result = getByTypeUseCase.apply(resourceDTO.getType());
+        Mono<ResourcePageDTO> result = getByTypeUseCase.apply(resourceDTO.getType(), new PageRequestDTO());
 
         // Assert
         StepVerifier.create(result)
-                .expectNextMatches(resourceCurrent -> {
-                    Assertions.assertEquals(resourceDTO, resourceCurrent);
-                    Assertions.assertEquals(resourceDTO.getId(), resourceCurrent.getId());
-                    return resourceCurrent.getId().equals(resourceDTO.getId());
+                .expectNextMatches(page -> {
+                    Assertions.assertEquals(List.of(resourceDTO), page.getResources());
+                    Assertions.assertNull(page.getNext());
+                    return page.getResources().get(0).getId().equals(resourceDTO.getId());
                 })
                 .verifyComplete();
     }
@@ -65,14 +71,15 @@ public class GetByTypeUseCaseTest {
     @Test
     void testApply_empty() {
         // Arrange
-        Mockito.when(resourceRepository.findAllByType("otherType")).thenReturn(Flux.empty());
+        Mockito.when(resourceRepository.findPage(Criteria.where("type").is("otherType"), null, 101, null))
+                .thenReturn(Flux.empty());
 
         // Act
-        Flux<ResourceDTO> result = getByTypeUseCase.apply("otherType");
+        Mono<ResourcePageDTO> result = getByTypeUseCase.apply("otherType", new PageRequestDTO());
 
         // Assert
         StepVerifier.create(result)
-                .expectNextCount(0)
+                .expectNextMatches(page -> page.getResources().isEmpty() && page.getNext() == null)
                 .expectComplete()
                 .verify();
     }
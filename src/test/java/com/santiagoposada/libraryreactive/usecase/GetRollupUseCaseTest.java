@@ -0,0 +1,52 @@
+package com.santiagoposada.libraryreactive.usecase;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import com.santiagoposada.libraryreactive.dto.StatsDTO;
+import com.santiagoposada.libraryreactive.entity.AvailabilityRollup;
+import com.santiagoposada.libraryreactive.repository.RollupCounters;
+import com.santiagoposada.libraryreactive.utils.HttpException;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@SpringBootTest
+public class GetRollupUseCaseTest {
+
+    @MockBean
+    private RollupCounters rollupCounters;
+
+    @SpyBean
+    private GetRollupUseCase getRollupUseCase;
+
+    @Test
+    void testApply() {
+        // Arrange
+        AvailabilityRollup rollup = new AvailabilityRollup();
+        rollup.setId(AvailabilityRollup.rollupId("category", "Books"));
+        rollup.setDimension("category");
+        rollup.setKey("Books");
+        rollup.setResources(4L);
+        rollup.setUnitsAvailable(12L);
+        rollup.setUnitsOwed(3L);
+
+        Mockito.when(rollupCounters.find("category", "Books")).thenReturn(Mono.just(rollup));
+
+        // Act & Assert
+        StepVerifier.create(getRollupUseCase.apply("category", "Books"))
+                .expectNext(new StatsDTO("Books", null, 4L, 12L, 3L))
+                .verifyComplete();
+    }
+
+    @Test
+    void testApply_unknownDimension() {
+        // Act & Assert
+        StepVerifier.create(getRollupUseCase.apply("name", "Books"))
+                .expectError(HttpException.class)
+                .verify();
+    }
+}
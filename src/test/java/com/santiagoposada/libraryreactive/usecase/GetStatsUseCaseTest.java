@@ -0,0 +1,63 @@
+package com.santiagoposada.libraryreactive.usecase;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import com.santiagoposada.libraryreactive.dto.StatsDTO;
+import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.utils.HttpException;
+
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+@SpringBootTest
+public class GetStatsUseCaseTest {
+
+    @MockBean
+    private ResourceRepository resourceRepository;
+
+    @SpyBean
+    private GetStatsUseCase getStatsUseCase;
+
+    @Test
+    void testApply_cachesAggregation() {
+        // Arrange
+        StatsDTO books = new StatsDTO("Books", "Novel", 3L, 10L, 2L);
+
+        Mockito.when(resourceRepository.aggregateStats(List.of("category", "type"))).thenReturn(Flux.just(books));
+
+        // Act & Assert
+        StepVerifier.create(getStatsUseCase.apply(List.of("type", "category")))
+                .expectNext(List.of(books))
+                .verifyComplete();
+        StepVerifier.create(getStatsUseCase.apply(List.of("category", "type", "type")))
+                .expectNext(List.of(books))
+                .verifyComplete();
+        Mockito.verify(resourceRepository, Mockito.times(1)).aggregateStats(List.of("category", "type"));
+    }
+
+    @Test
+    void testApply_defaultsToCategory() {
+        // Arrange
+        Mockito.when(resourceRepository.aggregateStats(List.of("category"))).thenReturn(Flux.empty());
+
+        // Act & Assert
+        StepVerifier.create(getStatsUseCase.apply(List.of()))
+                .expectNext(List.of())
+                .verifyComplete();
+    }
+
+    @Test
+    void testApply_unknownGroup() {
+        // Act & Assert
+        StepVerifier.create(getStatsUseCase.apply(List.of("name")))
+                .expectError(HttpException.class)
+                .verify();
+        Mockito.verify(resourceRepository, Mockito.never()).aggregateStats(Mockito.anyList());
+    }
+}
@@ -0,0 +1,117 @@
+package com.santiagoposada.libraryreactive.usecase;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import com.santiagoposada.libraryreactive.dto.ImportFormat;
+import com.santiagoposada.libraryreactive.entity.Resource;
+import com.santiagoposada.libraryreactive.repository.AvailabilityFeed;
+import com.santiagoposada.libraryreactive.repository.ImportResult;
+import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.repository.RollupCounters;
+import com.santiagoposada.libraryreactive.utils.HttpException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@SpringBootTest(properties = "library.import.batch-size=2")
+public class ImportResourcesUseCaseTest {
+
+    @MockBean
+    private ResourceRepository resourceRepository;
+
+    @MockBean
+    private RollupCounters rollupCounters;
+
+    @MockBean
+    private AvailabilityFeed availabilityFeed;
+
+    @SpyBean
+    private ImportResourcesUseCase importResourcesUseCase;
+
+    @Test
+    void testApply_ndjsonInBatches() {
+        // Arrange
+        Flux<String> lines = Flux.just(
+                "{\"name\":\"Nombre #1\",\"category\":\"Books\",\"unitsAvailable\":3,\"unitsOwed\":0}",
+                "",
+                "{\"id\":\"2\",\"name\":\"Nombre #2\",\"category\":\"Books\"}",
+                "{not json",
+                "{\"id\":\"3\",\"name\":\"Nombre #3\"}");
+
+        Resource replaced = new Resource("2", "Nombre viejo", "Novels", null, null, 1, 2);
+
+        Mockito.when(resourceRepository.findAllById(List.of("2"))).thenReturn(Flux.just(replaced));
+        Mockito.when(resourceRepository.findAllById(List.of("3"))).thenReturn(Flux.empty());
+        Mockito.when(resourceRepository.importResources(Mockito.anyList()))
+                .thenReturn(Mono.just(new ImportResult(1, 1, Map.of())))
+                .thenReturn(Mono.just(new ImportResult(0, 0, Map.of(0, "split resource"))));
+
+        // Act & Assert
+        StepVerifier.create(importResourcesUseCase.apply(lines, ImportFormat.NDJSON))
+                .expectNextMatches(summary -> {
+                    Assertions.assertEquals(1, summary.getInserted());
+                    Assertions.assertEquals(1, summary.getUpdated());
+                    Assertions.assertEquals(2, summary.getFailed());
+                    Assertions.assertTrue(summary.getErrors().get(0).startsWith("Line 4: Invalid JSON"));
+                    Assertions.assertEquals("Line 5: split resource", summary.getErrors().get(1));
+                    return true;
+                })
+                .verifyComplete();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Resource>> batches = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(resourceRepository, Mockito.times(2)).importResources(batches.capture());
+        Assertions.assertEquals(2, batches.getAllValues().get(0).size());
+        Assertions.assertEquals(1, batches.getAllValues().get(1).size());
+        Resource imported = batches.getAllValues().get(0).get(1);
+        Mockito.verify(rollupCounters).added(batches.getAllValues().get(0).get(0));
+        Mockito.verify(rollupCounters).removed(replaced);
+        Mockito.verify(rollupCounters).added(imported);
+        Mockito.verify(rollupCounters, Mockito.never()).rebuild();
+        Mockito.verify(availabilityFeed).changed(imported);
+        Mockito.verify(availabilityFeed, Mockito.never()).changed(batches.getAllValues().get(1).get(0));
+    }
+
+    @Test
+    void testApply_csv() {
+        // Arrange
+        Flux<String> lines = Flux.just(
+                "name,category,type,unitsAvailable,unitsOwed",
+                "\"Cien años de soledad, edición\",Books,Novel,4,1",
+                "Patria,Books,Novel,four,0");
+
+        Mockito.when(resourceRepository.importResources(Mockito.anyList()))
+                .thenReturn(Mono.just(new ImportResult(1, 0, Map.of())));
+
+        // Act & Assert
+        StepVerifier.create(importResourcesUseCase.apply(lines, ImportFormat.CSV))
+                .expectNextMatches(summary -> summary.getInserted() == 1 && summary.getFailed() == 1)
+                .verifyComplete();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Resource>> batch = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(resourceRepository).importResources(batch.capture());
+        Assertions.assertEquals("Cien años de soledad, edición", batch.getValue().get(0).getName());
+        Assertions.assertEquals(4, batch.getValue().get(0).getUnitsAvailable());
+        Mockito.verify(rollupCounters).added(batch.getValue().get(0));
+        Mockito.verify(rollupCounters, Mockito.never()).rebuild();
+    }
+
+    @Test
+    void testApply_unknownCsvColumn() {
+        // Act & Assert
+        StepVerifier.create(importResourcesUseCase.apply(Flux.just("name,isbn", "Patria,123"), ImportFormat.CSV))
+                .expectError(HttpException.class)
+                .verify();
+    }
+}
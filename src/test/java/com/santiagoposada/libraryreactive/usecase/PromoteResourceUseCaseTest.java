@@ -0,0 +1,80 @@
+package com.santiagoposada.libraryreactive.usecase;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.HttpStatus;
+
+import com.santiagoposada.libraryreactive.entity.Resource;
+import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.repository.ShardedCounters;
+import com.santiagoposada.libraryreactive.utils.HttpException;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@SpringBootTest
+public class PromoteResourceUseCaseTest {
+
+    @MockBean
+    private ResourceRepository resourceRepository;
+
+    @MockBean
+    private ShardedCounters shardedCounters;
+
+    @SpyBean
+    private PromoteResourceUseCase promoteResourceUseCase;
+
+    @Test
+    void testApply() {
+        // Arrange
+        Resource resource = new Resource("1233435ff", "Nombre #1", "Area tematica #1", "Tipo #1",
+                LocalDate.parse("2020-01-10"), 5, 10);
+
+        Mockito.when(shardedCounters.promote(resource.getId(), 4)).thenReturn(Mono.just(resource));
+
+        // Act
+        Mono<String> result = promoteResourceUseCase.apply(resource.getId(), 4);
+
+        // Assert
+        StepVerifier.create(result)
+                .expectNext("The resource Nombre #1 is now split across 4 shards")
+                .verifyComplete();
+    }
+
+    @Test
+    void testApply_alreadySharded() {
+        // Arrange
+        Mockito.when(shardedCounters.promote("1233435ff", 4)).thenReturn(Mono.empty());
+        Mockito.when(resourceRepository.existsById("1233435ff")).thenReturn(Mono.just(true));
+
+        // Act
+        Mono<String> result = promoteResourceUseCase.apply("1233435ff", 4);
+
+        // Assert
+        StepVerifier.create(result)
+                .expectNext("The resource with id: 1233435ff is already split across shards")
+                .verifyComplete();
+    }
+
+    @Test
+    void testApply_invalidShardCount() {
+        // Act
+        Mono<String> result = promoteResourceUseCase.apply("1233435ff", 1);
+
+        // Assert
+        StepVerifier.create(result)
+                .expectErrorMatches(throwable -> {
+                    Assertions.assertTrue(throwable instanceof HttpException);
+                    Assertions.assertEquals(HttpStatus.BAD_REQUEST, ((HttpException) throwable).getStatusCode());
+                    return true;
+                })
+                .verify();
+        Mockito.verify(shardedCounters, Mockito.never()).promote(Mockito.any(), Mockito.anyInt());
+    }
+}
@@ -0,0 +1,131 @@
+package com.santiagoposada.libraryreactive.usecase;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import com.santiagoposada.libraryreactive.dto.PageRequestDTO;
+import com.santiagoposada.libraryreactive.dto.ResourceDTO;
+import com.santiagoposada.libraryreactive.dto.ResourceQueryDTO;
+import com.santiagoposada.libraryreactive.entity.Resource;
+import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.repository.ShardedCounters;
+import com.santiagoposada.libraryreactive.utils.HttpException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@SpringBootTest
+public class QueryResourcesUseCaseTest {
+
+    @MockBean
+    private ResourceRepository resourceRepository;
+
+    @MockBean
+    private ShardedCounters shardedCounters;
+
+    @SpyBean
+    private QueryResourcesUseCase queryResourcesUseCase;
+
+    @Test
+    void testApply() {
+        // Arrange
+        ResourceQueryDTO query = new ResourceQueryDTO(null, "Books", 1, LocalDate.parse("2020-01-01"), null);
+        Criteria criteria = new Criteria().andOperator(
+                Criteria.where("category").is("Books"),
+                new Criteria().orOperator(
+                        new Criteria().andOperator(
+                                Criteria.where("unitsAvailable").gte(1),
+                                Criteria.where("lastBorrow").gte(LocalDate.parse("2020-01-01"))),
+                        Criteria.where("shards").exists(true)));
+        Resource resource = new Resource("1", "Nombre #1", "Books", "Tipo #1", LocalDate.parse("2020-01-10"), 0, 2);
+
+        Mockito.when(resourceRepository.findPage(criteria, null, 101, null)).thenReturn(Flux.just(resource));
+        Mockito.when(shardedCounters.overlay(resource)).thenReturn(Mono.just(resource));
+
+        // Act & Assert
+        StepVerifier.create(queryResourcesUseCase.apply(query, new PageRequestDTO()))
+                .expectNextMatches(page -> {
+                    Assertions.assertEquals(List.of("1"), List.of(page.getResources().get(0).getId()));
+                    return page.getNext() == null;
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void testApply_matchesShardedResourcesOnTheirTotals() {
+        // Arrange
+        ResourceQueryDTO query = new ResourceQueryDTO(null, null, 2, null, null);
+        Resource plain = new Resource("1", "Nombre #1", "Books", "Tipo #1", LocalDate.parse("2020-01-10"), 0, 3);
+        Resource stocked = sharded("2");
+        Resource drained = sharded("3");
+
+        Mockito.when(resourceRepository.findPage(QueryResourcesUseCase.criteria(query), null, 101, null))
+                .thenReturn(Flux.just(plain, stocked, drained));
+        Mockito.when(shardedCounters.overlay(plain)).thenReturn(Mono.just(plain));
+        Mockito.when(shardedCounters.overlay(stocked)).thenReturn(Mono.just(withUnits(stocked, 5)));
+        Mockito.when(shardedCounters.overlay(drained)).thenReturn(Mono.just(withUnits(drained, 1)));
+
+        // Act & Assert
+        StepVerifier.create(queryResourcesUseCase.apply(query, new PageRequestDTO()))
+                .expectNextMatches(page -> {
+                    Assertions.assertEquals(List.of("1", "2"), page.getResources().stream()
+                            .map(ResourceDTO::getId).collect(Collectors.toList()));
+                    Assertions.assertEquals(5, page.getResources().get(1).getUnitsAvailable());
+                    return page.getNext() == null;
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void testApply_invalidRange() {
+        // Arrange
+        ResourceQueryDTO query = new ResourceQueryDTO(null, null, null,
+                LocalDate.parse("2021-01-01"), LocalDate.parse("2020-01-01"));
+
+        // Act & Assert
+        StepVerifier.create(queryResourcesUseCase.apply(query, new PageRequestDTO()))
+                .expectError(HttpException.class)
+                .verify();
+    }
+
+    @Test
+    void testStream_invalidRange() {
+        // Arrange
+        ResourceQueryDTO query = new ResourceQueryDTO(null, null, null,
+                LocalDate.parse("2021-01-01"), LocalDate.parse("2020-01-01"));
+
+        // Act & Assert
+        StepVerifier.create(queryResourcesUseCase.stream(query, new PageRequestDTO()))
+                .expectError(HttpException.class)
+                .verify();
+        Mockito.verifyNoInteractions(resourceRepository);
+    }
+
+    @Test
+    void testCriteria_noFilters() {
+        Assertions.assertEquals(new Criteria(), QueryResourcesUseCase.criteria(new ResourceQueryDTO()));
+    }
+
+    private static Resource sharded(String id) {
+        Resource resource = new Resource(id, "Nombre #" + id, "Books", "Tipo #1", LocalDate.parse("2020-01-10"), 0, 0);
+        resource.setShards(2);
+        return resource;
+    }
+
+    private static Resource withUnits(Resource resource, int unitsAvailable) {
+        Resource total = new Resource(resource.getId(), resource.getName(), resource.getCategory(), resource.getType(),
+                resource.getLastBorrow(), 0, unitsAvailable);
+        total.setShards(resource.getShards());
+        return total;
+    }
+}
@@ -17,6 +17,8 @@ import com.santiagoposada.libraryreactive.utils.ResourceNotFoundException;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import static org.mockito.ArgumentMatchers.any;
+
 @SpringBootTest
 public class ReturnUseCaseTest {
 
@@ -48,10 +50,13 @@ public class ReturnUseCaseTest {
         resourceDTO.setUnitsOwed(resource.getUnitsOwed());
         resourceDTO.setLastBorrow(resource.getLastBorrow());
 
+        Resource returned = new Resource(resource.getId(), resource.getName(), resource.getCategory(),
+                resource.getType(), resource.getLastBorrow(), resource.getUnitsOwed() - 1,
+                resource.getUnitsAvailable() + 1);
+
         String responseMessage = "The resource with id: " + resource.getId() + " was returned successfully";
 
-        Mockito.when(resourceRepository.findById(resourceDTO.getId())).thenReturn(Mono.just(resource));
-        Mockito.when(resourceRepository.save(resource)).thenReturn(Mono.just(resource));
+        Mockito.when(resourceRepository.returnUnit(resourceDTO.getId())).thenReturn(Mono.just(returned));
 
         // Act
         Mono<String> result = returnUseCase.apply(resourceDTO.getId());
@@ -62,8 +67,28 @@ public class ReturnUseCaseTest {
                 .expectComplete()
                 .verify();
 
-        Assertions.assertEquals(resourceDTO.getUnitsOwed() - 1, resource.getUnitsOwed());
-        Assertions.assertEquals(resourceDTO.getUnitsAvailable() + 1, resource.getUnitsAvailable());
+        Mockito.verify(resourceRepository, Mockito.never()).findById(resourceDTO.getId());
+        Mockito.verify(resourceRepository, Mockito.never()).save(any());
+        Assertions.assertEquals(resourceDTO.getUnitsOwed() - 1, returned.getUnitsOwed());
+        Assertions.assertEquals(resourceDTO.getUnitsAvailable() + 1, returned.getUnitsAvailable());
+    }
+
+    @Test
+    void testApply_nothing_owed() {
+        // Arrange
+        String responseMessage = "There arent units owed to be returned of that resource";
+
+        Mockito.when(resourceRepository.returnUnit("1233435ff")).thenReturn(Mono.empty());
+        Mockito.when(resourceRepository.findById("1233435ff")).thenReturn(Mono.just(new Resource()));
+
+        // Act
+        Mono<String> result = returnUseCase.apply("1233435ff");
+
+        // Assert
+        StepVerifier.create(result)
+                .expectNext(responseMessage)
+                .expectComplete()
+                .verify();
     }
 
     @Test
@@ -91,6 +116,7 @@ public class ReturnUseCaseTest {
     @Test
     void testApply_empty() {
         // Arrange
+        Mockito.when(resourceRepository.returnUnit("otherId")).thenReturn(Mono.empty());
         Mockito.when(resourceRepository.findById("otherId")).thenReturn(Mono.empty());
 
         // Act
@@ -6,10 +6,13 @@ import org.mockito.Mockito;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 
 import com.santiagoposada.libraryreactive.dto.ResourceDTO;
 import com.santiagoposada.libraryreactive.entity.Resource;
 import com.santiagoposada.libraryreactive.repository.ResourceRepository;
+import com.santiagoposada.libraryreactive.utils.HttpException;
 import com.santiagoposada.libraryreactive.utils.ResourceNotFoundException;
 
 import reactor.core.publisher.Mono;
@@ -50,6 +53,7 @@ public class UpdateUseCaseTest {
         resourceDTO.setUnitsOwed(resource.getUnitsOwed());
         resourceDTO.setLastBorrow(resource.getLastBorrow());
 
+        Mockito.when(resourceRepository.findById(resource.getId())).thenReturn(Mono.just(resource));
         Mockito.when(resourceRepository.save(any())).thenReturn(Mono.just(resource));
 
         // Act
@@ -65,6 +69,101 @@ public class UpdateUseCaseTest {
                 .verifyComplete();
     }
 
+    @Test
+    void testApply_retriesVersionConflict() {
+        // Arrange
+        Resource resource = new Resource("1233435ff", "Nombre #1", "Area tematica #1", "Tipo #1",
+                LocalDate.parse("2020-01-10"), 5, 10);
+        resource.setVersion(3L);
+
+        ResourceDTO resourceDTO = new ResourceDTO();
+        resourceDTO.setId(resource.getId());
+        resourceDTO.setName(resource.getName());
+        resourceDTO.setUnitsAvailable(resource.getUnitsAvailable());
+
+        Mockito.when(resourceRepository.findById(resource.getId())).thenReturn(Mono.just(resource));
+        Mockito.when(resourceRepository.save(any()))
+                .thenReturn(Mono.error(new OptimisticLockingFailureException("conflict")))
+                .thenReturn(Mono.just(resource));
+
+        // Act
+        Mono<ResourceDTO> result = updateUseCase.apply(resourceDTO);
+
+        // Assert
+        StepVerifier.create(result)
+                .expectNextMatches(resourceCurrent -> resourceCurrent.getVersion().equals(3L))
+                .verifyComplete();
+        Mockito.verify(resourceRepository, Mockito.times(2)).save(any());
+    }
+
+    @Test
+    void testApply_conflictWhenRetriesAreExhausted() {
+        // Arrange
+        Resource resource = new Resource("1233435ff", "Nombre #1", "Area tematica #1", "Tipo #1",
+                LocalDate.parse("2020-01-10"), 5, 10);
+
+        ResourceDTO resourceDTO = new ResourceDTO();
+        resourceDTO.setId(resource.getId());
+
+        Mockito.when(resourceRepository.findById(resource.getId())).thenReturn(Mono.just(resource));
+        Mockito.when(resourceRepository.save(any()))
+                .thenReturn(Mono.error(new OptimisticLockingFailureException("conflict")));
+
+        // Act
+        Mono<ResourceDTO> result = updateUseCase.apply(resourceDTO);
+
+        // Assert
+        StepVerifier.create(result)
+                .expectErrorMatches(throwable -> throwable instanceof HttpException
+                        && ((HttpException) throwable).getStatusCode() == HttpStatus.CONFLICT)
+                .verify();
+    }
+
+    @Test
+    void testApply_staleVersionIsNotRetried() {
+        // Arrange
+        ResourceDTO resourceDTO = new ResourceDTO();
+        resourceDTO.setId("1233435ff");
+        resourceDTO.setVersion(1L);
+
+        Mockito.when(resourceRepository.findById(resourceDTO.getId())).thenReturn(Mono.just(new Resource()));
+        Mockito.when(resourceRepository.save(any()))
+                .thenReturn(Mono.error(new OptimisticLockingFailureException("conflict")));
+
+        // Act
+        Mono<ResourceDTO> result = updateUseCase.apply(resourceDTO);
+
+        // Assert
+        StepVerifier.create(result)
+                .expectErrorMatches(throwable -> throwable instanceof HttpException
+                        && ((HttpException) throwable).getStatusCode() == HttpStatus.CONFLICT)
+                .verify();
+        Mockito.verify(resourceRepository, Mockito.times(1)).save(any());
+    }
+
+    @Test
+    void testApply_shardedResourceIsRejected() {
+        // Arrange
+        Resource resource = new Resource("1233435ff", "Nombre #1", "Area tematica #1", "Tipo #1",
+                LocalDate.parse("2020-01-10"), 0, 0);
+        resource.setShards(4);
+
+        ResourceDTO resourceDTO = new ResourceDTO();
+        resourceDTO.setId(resource.getId());
+
+        Mockito.when(resourceRepository.findById(resource.getId())).thenReturn(Mono.just(resource));
+
+        // Act
+        Mono<ResourceDTO> result = updateUseCase.apply(resourceDTO);
+
+        // Assert
+        StepVerifier.create(result)
+                .expectErrorMatches(throwable -> throwable instanceof HttpException
+                        && ((HttpException) throwable).getStatusCode() == HttpStatus.CONFLICT)
+                .verify();
+        Mockito.verify(resourceRepository, Mockito.never()).save(any());
+    }
+
     @Test
     void testApply_IdIsRequired() {
         // Arrange
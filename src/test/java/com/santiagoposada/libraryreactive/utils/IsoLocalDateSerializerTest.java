@@ -0,0 +1,31 @@
+package com.santiagoposada.libraryreactive.utils;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+public class IsoLocalDateSerializerTest {
+
+    private final ObjectMapper javaTime = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final ObjectMapper iso = new ObjectMapper()
+            .registerModule(new SimpleModule().addSerializer(LocalDate.class, new IsoLocalDateSerializer()));
+
+    @Test
+    void testSerialize_matchesJavaTimeModule() throws JsonProcessingException {
+        for (LocalDate date : List.of(LocalDate.parse("2020-01-10"), LocalDate.parse("1999-12-31"),
+                LocalDate.of(7, 3, 4), LocalDate.of(0, 1, 1), LocalDate.of(9999, 12, 31),
+                LocalDate.of(10000, 1, 1), LocalDate.of(-44, 3, 15))) {
+            Assertions.assertEquals(javaTime.writeValueAsString(date), iso.writeValueAsString(date));
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.santiagoposada.libraryreactive.utils;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ResourceFieldsTest {
+
+    @Test
+    void testParse_addsId() {
+        Assertions.assertEquals(Set.of("id", "name", "unitsAvailable"), ResourceFields.parse("name, unitsAvailable"));
+    }
+
+    @Test
+    void testParse_allFields() {
+        Assertions.assertNull(ResourceFields.parse(null));
+        Assertions.assertNull(ResourceFields.parse(String.join(",", ResourceFields.ALL)));
+    }
+
+    @Test
+    void testParse_unknownField() {
+        HttpException exception = Assertions.assertThrows(HttpException.class, () -> ResourceFields.parse("name,isbn"));
+        Assertions.assertTrue(exception.getMessage().contains("isbn"));
+    }
+}
@@ -0,0 +1,56 @@
+package com.santiagoposada.libraryreactive.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+public class SingleFlightTest {
+
+    @Test
+    void testGet_sharesLookupInFlight() {
+        // Arrange
+        AtomicInteger lookups = new AtomicInteger();
+        Sinks.One<String> result = Sinks.one();
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(key -> {
+            lookups.incrementAndGet();
+            return result.asMono();
+        });
+
+        // Act
+        Mono<String> first = singleFlight.get("12345");
+        Mono<String> second = singleFlight.get("12345");
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> {
+                    Assertions.assertEquals(1, singleFlight.inFlight());
+                    result.tryEmitValue("Nombre #1");
+                })
+                .expectNextMatches(both -> both.getT1().equals("Nombre #1") && both.getT2().equals("Nombre #1"))
+                .verifyComplete();
+
+        // Assert
+        Assertions.assertEquals(1, lookups.get());
+        Assertions.assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    void testGet_releasesFailedLookup() {
+        // Arrange
+        AtomicInteger lookups = new AtomicInteger();
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(key -> lookups.incrementAndGet() == 1
+                ? Mono.error(new IllegalStateException("down"))
+                : Mono.just("Nombre #1"));
+
+        // Act
+        StepVerifier.create(singleFlight.get("12345")).verifyError(IllegalStateException.class);
+        StepVerifier.create(singleFlight.get("12345")).expectNext("Nombre #1").verifyComplete();
+
+        // Assert
+        Assertions.assertEquals(2, lookups.get());
+        Assertions.assertEquals(0, singleFlight.inFlight());
+    }
+}